@@ -4,6 +4,7 @@ import com.evcommerce.backend.model.EV;
 import com.evcommerce.backend.model.User;
 import com.evcommerce.backend.repository.EVRepository;
 import com.evcommerce.backend.repository.UserRepository;
+import com.evcommerce.backend.service.EVService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -18,6 +19,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private EVService evService;
+    
     @Override
     public void run(String... args) throws Exception {
         // Initialize sample users (always create if they don't exist)
@@ -95,6 +99,9 @@ public class DataInitializer implements CommandLineRunner {
             evRepository.save(porscheTaycan);
             
             System.out.println("Sample EVs created");
+            
+            // Seeding bypasses EVService, so publish the seeded catalog
+            evService.reloadCatalog();
         }
     }
 } 
\ No newline at end of file
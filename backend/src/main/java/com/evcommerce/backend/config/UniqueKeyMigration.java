@@ -0,0 +1,86 @@
+package com.evcommerce.backend.config;
+
+import com.evcommerce.backend.model.CartItem;
+import com.evcommerce.backend.model.EV;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Prepares existing tables for the unique constraints that ddl-auto=update
+// adds when the entity manager starts. Hibernate cannot add a constraint the
+// existing rows violate (it only logs a warning), and the ON CONFLICT
+// statements that name it would then fail on every call. So rows that
+// would violate a missing constraint are merged or renamed first. Each step
+// runs only while its constraint is missing.
+@Component(UniqueKeyMigration.BEAN_NAME)
+public class UniqueKeyMigration implements InitializingBean {
+
+    static final String BEAN_NAME = "uniqueKeyMigration";
+
+    // Duplicate cart lines, left by the old read-modify-write addToCart, are
+    // merged into the lowest id with their quantities summed
+    static final String MERGE_CART_LINES_SQL =
+        "WITH merged AS (SELECT user_id, ev_id, min(id) AS keep_id, sum(quantity) AS quantity " +
+        "FROM cart_items GROUP BY user_id, ev_id HAVING count(*) > 1), " +
+        "kept AS (UPDATE cart_items c SET quantity = m.quantity FROM merged m WHERE c.id = m.keep_id) " +
+        "DELETE FROM cart_items c USING merged m " +
+        "WHERE c.user_id = m.user_id AND c.ev_id = m.ev_id AND c.id <> m.keep_id";
+
+    // Vehicles listed more than once under the same brand and model keep the
+    // lowest id; the others get their id appended to the model name. They
+    // are renamed rather than deleted because carts, orders and reviews
+    // reference them.
+    static final String RENAME_DUPLICATE_EVS_SQL =
+        "UPDATE electric_vehicles e SET model = left(e.model, 255 - length(' #' || e.id)) || ' #' || e.id " +
+        "FROM (SELECT id, row_number() OVER (PARTITION BY brand, model ORDER BY id) AS n " +
+        "FROM electric_vehicles) d WHERE e.id = d.id AND d.n > 1";
+
+    // The plain index the unique constraint replaces
+    static final String DROP_EV_BRAND_MODEL_INDEX_SQL = "DROP INDEX IF EXISTS idx_ev_brand_model";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Override
+    public void afterPropertiesSet() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (needsConstraint(jdbcTemplate, "cart_items", CartItem.USER_EV_CONSTRAINT)) {
+            int merged = jdbcTemplate.update(MERGE_CART_LINES_SQL);
+            if (merged > 0) {
+                System.out.println("Merged " + merged + " duplicate cart lines before adding " + CartItem.USER_EV_CONSTRAINT);
+            }
+        }
+        if (needsConstraint(jdbcTemplate, "electric_vehicles", EV.BRAND_MODEL_CONSTRAINT)) {
+            int renamed = jdbcTemplate.update(RENAME_DUPLICATE_EVS_SQL);
+            if (renamed > 0) {
+                System.out.println("Renamed " + renamed + " duplicate vehicles before adding " + EV.BRAND_MODEL_CONSTRAINT);
+            }
+            jdbcTemplate.execute(DROP_EV_BRAND_MODEL_INDEX_SQL);
+        }
+    }
+
+    // True when the table exists but the constraint does not yet
+    private static boolean needsConstraint(JdbcTemplate jdbcTemplate, String table, String constraint) {
+        Boolean tableExists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+        if (!Boolean.TRUE.equals(tableExists)) {
+            return false;
+        }
+        Integer constraints = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM pg_constraint WHERE conname = ?", Integer.class, constraint);
+        return constraints == null || constraints == 0;
+    }
+
+    // Makes the entity manager factory, and with it the schema update, wait
+    // for the migration
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependency() {
+            super(BEAN_NAME);
+        }
+    }
+}
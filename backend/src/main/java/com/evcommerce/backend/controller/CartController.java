@@ -1,6 +1,7 @@
 package com.evcommerce.backend.controller;
 
 import com.evcommerce.backend.model.CartItem;
+import com.evcommerce.backend.model.CartOperation;
 import com.evcommerce.backend.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -42,6 +43,19 @@ public class CartController {
         }
     }
     
+    // Several add / update / remove operations in one request, applied all or none
+    @PostMapping("/{userId}/batch")
+    public ResponseEntity<?> applyBatch(
+            @PathVariable Long userId,
+            @RequestBody List<CartOperation> operations) {
+        try {
+            List<CartItem> cartItems = cartService.applyCartOperations(userId, operations);
+            return ResponseEntity.ok(cartItems);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @PutMapping("/{cartItemId}/quantity")
     public ResponseEntity<?> updateQuantity(
             @PathVariable Long cartItemId,
@@ -94,4 +108,14 @@ public class CartController {
             return ResponseEntity.badRequest().build();
         }
     }
+    
+    // Line count and total in one call, for the header badge
+    @GetMapping("/{userId}/summary")
+    public ResponseEntity<?> getCartSummary(@PathVariable Long userId) {
+        try {
+            return ResponseEntity.ok(cartService.getCartSummary(userId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 } 
\ No newline at end of file
@@ -2,14 +2,27 @@ package com.evcommerce.backend.controller;
 
 import com.evcommerce.backend.model.EV;
 import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.EVSummary;
+import com.evcommerce.backend.service.EVComparisonService;
+import com.evcommerce.backend.service.EVExportService;
+import com.evcommerce.backend.service.EVImportService;
+import com.evcommerce.backend.service.EVLeaderboardService;
 import com.evcommerce.backend.service.EVService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/evs")
@@ -19,21 +32,133 @@ public class EVController {
     @Autowired
     private EVService evService;
     
+    @Autowired
+    private EVComparisonService evComparisonService;
+    
+    @Autowired
+    private EVExportService evExportService;
+    
+    @Autowired
+    private EVImportService evImportService;
+    
+    @Autowired
+    private EVLeaderboardService evLeaderboardService;
+    
     @GetMapping
-    public ResponseEntity<List<EV>> getAllEVs() {
-        return ResponseEntity.ok(evService.getAllEVs());
+    public ResponseEntity<?> getAllEVs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        boolean summary;
+        try {
+            summary = evService.isSummaryView(fields);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        
+        // Answer revalidations from the catalog version alone, before any lookup or serialization
+        if (request.checkNotModified(catalogETag(summary ? "evs-summary" : "evs"), evService.getCatalogLastModified())) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache())
+                .body(evService.getAvailablePage(cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/page")
+    public ResponseEntity<?> getEVPage(
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getEVPage(sort, direction, cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/top-rated")
+    public ResponseEntity<?> getTopRatedEVs(
+            @RequestParam(required = false) EVCategory category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(evLeaderboardService.getPage(category, cursor, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<?> searchEVs(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        try {
+            return listView(evService.searchEVs(q, limit), fields);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Streams the catalog as NDJSON; gzip is used when the client accepts it
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportEVs(
+            @RequestParam(required = false) Long afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            evExportService.exportAvailable(afterId, target);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+    
+    // Bulk upsert from a CSV (with header row) or NDJSON body; invalid rows are
+    // skipped and reported by line number
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importEVs(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        try {
+            return ResponseEntity.ok(evImportService.importCatalog(body, EVImportService.formatOf(contentType)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<EV> getEVById(@PathVariable Long id) {
+    public ResponseEntity<EV> getEVById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(catalogETag("ev-" + id), evService.getCatalogLastModified())) {
+            return null;
+        }
         return evService.getEVById(id)
-            .map(ResponseEntity::ok)
+            .map(ev -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ev))
             .orElse(ResponseEntity.notFound().build());
     }
     
     @PostMapping
-    public ResponseEntity<EV> createEV(@Valid @RequestBody EV ev) {
-        return ResponseEntity.ok(evService.createEV(ev));
+    public ResponseEntity<?> createEV(@Valid @RequestBody EV ev) {
+        try {
+            return ResponseEntity.ok(evService.createEV(ev));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @PutMapping("/{id}")
@@ -57,44 +182,123 @@ public class EVController {
     }
     
     @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<EV>> getEVsByBrand(@PathVariable String brand) {
-        return ResponseEntity.ok(evService.getEVsByBrand(brand));
+    public ResponseEntity<?> getEVsByBrand(
+            @PathVariable String brand,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getBrandPage(brand, cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<EV>> getEVsByCategory(@PathVariable EVCategory category) {
-        return ResponseEntity.ok(evService.getEVsByCategory(category));
+    public ResponseEntity<?> getEVsByCategory(
+            @PathVariable EVCategory category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getCategoryPage(category, cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/price-range")
-    public ResponseEntity<List<EV>> getEVsByPriceRange(
+    public ResponseEntity<?> getEVsByPriceRange(
             @RequestParam BigDecimal minPrice,
-            @RequestParam BigDecimal maxPrice) {
-        return ResponseEntity.ok(evService.getEVsByPriceRange(minPrice, maxPrice));
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getPriceRangePage(minPrice, maxPrice, cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/range/{minRange}")
-    public ResponseEntity<List<EV>> getEVsByMinRange(@PathVariable Integer minRange) {
-        return ResponseEntity.ok(evService.getEVsByMinRange(minRange));
+    public ResponseEntity<?> getEVsByMinRange(
+            @PathVariable Integer minRange,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getMinRangePage(minRange, cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     @GetMapping("/filter")
-    public ResponseEntity<List<EV>> getEVsWithFilters(
+    public ResponseEntity<?> getEVsWithFilters(
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) EVCategory category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minRange,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String fields) {
+        try {
+            return ResponseEntity.ok(evService.getFilteredPage(brand, category, minPrice, maxPrice, minRange,
+                cursor, size, fields));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/facets")
+    public ResponseEntity<Map<String, Object>> getFacets(
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) EVCategory category,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) Integer minRange) {
-        return ResponseEntity.ok(evService.getEVsWithFilters(brand, category, minPrice, maxPrice, minRange));
+        return ResponseEntity.ok(evService.getFacets(brand, category, minPrice, maxPrice, minRange));
     }
     
     @GetMapping("/brands")
-    public ResponseEntity<List<String>> getAllBrands() {
-        return ResponseEntity.ok(evService.getAllBrands());
+    public ResponseEntity<List<String>> getAllBrands(WebRequest request) {
+        if (request.checkNotModified(catalogETag("brands"), evService.getCatalogLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(evService.getAllBrands());
     }
     
     @PostMapping("/compare")
     public ResponseEntity<List<EV>> compareEVs(@RequestBody List<Long> evIds) {
         return ResponseEntity.ok(evService.compareEVs(evIds));
     }
+    
+    @PostMapping("/compare/matrix")
+    public ResponseEntity<?> compareEVMatrix(@RequestBody List<Long> evIds) {
+        try {
+            return ResponseEntity.ok(evComparisonService.compare(evIds));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    private ResponseEntity<?> listView(List<EV> evs, String fields) {
+        try {
+            if (evService.isSummaryView(fields)) {
+                List<EVSummary> summaries = evService.toSummaries(evs);
+                return ResponseEntity.ok(summaries);
+            }
+            return ResponseEntity.ok(evs);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Strong ETag derived from the catalog version; every catalog write bumps
+    // the version, so a matching tag means the payload is byte-for-byte unchanged
+    private String catalogETag(String resource) {
+        return "\"" + resource + "-" + evService.getCatalogVersion() + "\"";
+    }
 } 
\ No newline at end of file
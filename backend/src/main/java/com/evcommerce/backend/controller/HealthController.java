@@ -1,5 +1,6 @@
 package com.evcommerce.backend.controller;
 
+import com.evcommerce.backend.service.CartSweeper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,6 +20,9 @@ public class HealthController {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private CartSweeper cartSweeper;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> healthCheck() {
         Map<String, Object> response = new HashMap<>();
@@ -51,4 +55,10 @@ public class HealthController {
         response.put("timestamp", System.currentTimeMillis());
         return ResponseEntity.ok(response);
     }
+
+    // Rows swept per run by the abandoned cart sweeper
+    @GetMapping("/cart-sweeper")
+    public ResponseEntity<Map<String, Object>> cartSweeperStats() {
+        return ResponseEntity.ok(cartSweeper.getStats());
+    }
 } 
\ No newline at end of file
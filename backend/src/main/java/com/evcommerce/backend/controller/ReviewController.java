@@ -1,7 +1,10 @@
 package com.evcommerce.backend.controller;
 
+import com.evcommerce.backend.model.EV.EVCategory;
 import com.evcommerce.backend.model.Review;
+import com.evcommerce.backend.service.ReviewModerationService;
 import com.evcommerce.backend.service.ReviewService;
+import com.evcommerce.backend.service.ReviewVoteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +21,12 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
     
+    @Autowired
+    private ReviewModerationService reviewModerationService;
+    
+    @Autowired
+    private ReviewVoteService reviewVoteService;
+    
     @GetMapping("/ev/{evId}")
     public ResponseEntity<List<Review>> getReviewsByEv(@PathVariable Long evId) {
         try {
@@ -38,6 +47,20 @@ public class ReviewController {
         }
     }
     
+    @GetMapping("/ev/{evId}/feed")
+    public ResponseEntity<?> getReviewFeedByEv(
+            @PathVariable Long evId,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(defaultValue = "false") boolean verified,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reviewService.getReviewFeedByEv(evId, sort, verified, cursor, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Review>> getReviewsByUser(@PathVariable Long userId) {
         try {
@@ -48,6 +71,18 @@ public class ReviewController {
         }
     }
     
+    @GetMapping("/user/{userId}/feed")
+    public ResponseEntity<?> getReviewFeedByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reviewService.getReviewFeedByUser(userId, cursor, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @PostMapping("/ev/{evId}")
     public ResponseEntity<?> createReview(
             @PathVariable Long evId,
@@ -96,16 +131,42 @@ public class ReviewController {
         }
     }
     
+    // Batch form of /ev/{evId}/stats for catalog grids: ?evIds=1,2,3
+    @GetMapping("/stats")
+    public ResponseEntity<?> getReviewStatsByEvs(@RequestParam List<Long> evIds) {
+        try {
+            return ResponseEntity.ok(reviewService.getReviewStatsByEvs(evIds));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/top")
-    public ResponseEntity<List<Review>> getTopReviews(@RequestParam(defaultValue = "4") Integer minRating) {
+    public ResponseEntity<List<Review>> getTopReviews(
+            @RequestParam(defaultValue = "4") Integer minRating,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) EVCategory category,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<Review> reviews = reviewService.getTopReviews(minRating);
+            List<Review> reviews = reviewService.getTopReviews(minRating, brand, category, limit);
             return ResponseEntity.ok(reviews);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    @PostMapping("/{reviewId}/vote")
+    public ResponseEntity<?> voteOnReview(
+            @PathVariable Long reviewId,
+            @RequestParam Long userId,
+            @RequestParam boolean helpful) {
+        try {
+            return ResponseEntity.ok(reviewVoteService.vote(reviewId, userId, helpful));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @PostMapping("/{reviewId}/verify")
     public ResponseEntity<?> verifyReview(
             @PathVariable Long reviewId,
@@ -118,6 +179,40 @@ public class ReviewController {
         }
     }
     
+    @GetMapping("/moderation/pending")
+    public ResponseEntity<?> getPendingReviews(
+            @RequestParam Long adminUserId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.getPendingPage(adminUserId, cursor, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/moderation/verify")
+    public ResponseEntity<?> verifyReviews(
+            @RequestParam Long adminUserId,
+            @RequestBody List<Long> reviewIds) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.verify(adminUserId, reviewIds));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/moderation/reject")
+    public ResponseEntity<?> rejectReviews(
+            @RequestParam Long adminUserId,
+            @RequestBody List<Long> reviewIds) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.reject(adminUserId, reviewIds));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     @GetMapping("/user/{userId}/ev/{evId}")
     public ResponseEntity<Review> getUserReviewForEv(
             @PathVariable Long userId,
@@ -4,11 +4,19 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+    @UniqueConstraint(name = CartItem.USER_EV_CONSTRAINT, columnNames = {"user_id", "ev_id"})
+}, indexes = {
+    @Index(name = "idx_cart_item_updated", columnList = "updatedAt, id")
+})
 public class CartItem {
     
+    // One line per user and vehicle, enforced by the database
+    public static final String USER_EV_CONSTRAINT = "uk_cart_item_user_ev";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,6 +37,11 @@ public class CartItem {
     @Positive(message = "Price must be positive")
     private BigDecimal price;
     
+    // Last write of the line, set by the database on every flush; the
+    // abandoned cart sweeper goes by the newest line of a cart
+    @Column(insertable = false, updatable = false, columnDefinition = "timestamp not null default now()")
+    private LocalDateTime updatedAt;
+    
     // Constructors
     public CartItem() {}
     
@@ -0,0 +1,57 @@
+package com.evcommerce.backend.model;
+
+// One step of a batch cart edit: "add" (evId, quantity), "update"
+// (cartItemId, quantity) or "remove" (cartItemId)
+public class CartOperation {
+    
+    private String type;
+    
+    private Long evId;
+    
+    private Long cartItemId;
+    
+    private Integer quantity;
+    
+    // Constructors
+    public CartOperation() {}
+    
+    public CartOperation(String type, Long evId, Long cartItemId, Integer quantity) {
+        this.type = type;
+        this.evId = evId;
+        this.cartItemId = cartItemId;
+        this.quantity = quantity;
+    }
+    
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public Long getEvId() {
+        return evId;
+    }
+    
+    public void setEvId(Long evId) {
+        this.evId = evId;
+    }
+    
+    public Long getCartItemId() {
+        return cartItemId;
+    }
+    
+    public void setCartItemId(Long cartItemId) {
+        this.cartItemId = cartItemId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+} 
\ No newline at end of file
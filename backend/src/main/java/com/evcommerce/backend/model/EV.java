@@ -7,9 +7,18 @@ import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "electric_vehicles")
+@Table(name = "electric_vehicles", uniqueConstraints = {
+    @UniqueConstraint(name = EV.BRAND_MODEL_CONSTRAINT, columnNames = {"brand", "model"})
+}, indexes = {
+    @Index(name = "idx_ev_available_price_id", columnList = "available, price, id"),
+    @Index(name = "idx_ev_available_range_id", columnList = "available, rangeKm, id"),
+    @Index(name = "idx_ev_available_id", columnList = "available, id")
+})
 public class EV {
     
+    // One vehicle per brand and model, the key catalog imports upsert on
+    public static final String BRAND_MODEL_CONSTRAINT = "uk_ev_brand_model";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
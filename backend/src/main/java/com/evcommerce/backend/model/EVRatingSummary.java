@@ -0,0 +1,123 @@
+package com.evcommerce.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Materialized rating aggregate for one EV, maintained by delta upserts
+// whenever a review is created, changed or deleted
+@Entity
+@Table(name = "ev_rating_summaries")
+public class EVRatingSummary {
+
+    @Id
+    @Column(name = "ev_id")
+    private Long evId;
+
+    private long count1;
+
+    private long count2;
+
+    private long count3;
+
+    private long count4;
+
+    private long count5;
+
+    private long ratingSum;
+
+    private long reviewCount;
+
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Constructors
+    public EVRatingSummary() {}
+
+    public EVRatingSummary(Long evId) {
+        this.evId = evId;
+    }
+
+    // Count of reviews with the given 1-5 star rating
+    public long getCount(int rating) {
+        switch (rating) {
+            case 1: return count1;
+            case 2: return count2;
+            case 3: return count3;
+            case 4: return count4;
+            case 5: return count5;
+            default: throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+
+    // Getters and Setters
+    public Long getEvId() {
+        return evId;
+    }
+
+    public void setEvId(Long evId) {
+        this.evId = evId;
+    }
+
+    public long getCount1() {
+        return count1;
+    }
+
+    public void setCount1(long count1) {
+        this.count1 = count1;
+    }
+
+    public long getCount2() {
+        return count2;
+    }
+
+    public void setCount2(long count2) {
+        this.count2 = count2;
+    }
+
+    public long getCount3() {
+        return count3;
+    }
+
+    public void setCount3(long count3) {
+        this.count3 = count3;
+    }
+
+    public long getCount4() {
+        return count4;
+    }
+
+    public void setCount4(long count4) {
+        this.count4 = count4;
+    }
+
+    public long getCount5() {
+        return count5;
+    }
+
+    public void setCount5(long count5) {
+        this.count5 = count5;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,23 @@
+package com.evcommerce.backend.model;
+
+import com.evcommerce.backend.model.EV.EVCategory;
+import java.math.BigDecimal;
+
+// Grid/list view of an EV: only the columns a catalog card needs
+public record EVSummary(
+    Long id,
+    String brand,
+    String model,
+    BigDecimal price,
+    Integer rangeKm,
+    Integer batteryCapacityKwh,
+    Integer chargingTimeHours,
+    EVCategory category,
+    String imageUrl
+) {
+    
+    public static EVSummary of(EV ev) {
+        return new EVSummary(ev.getId(), ev.getBrand(), ev.getModel(), ev.getPrice(),
+            ev.getRangeKm(), ev.getBatteryCapacityKwh(), ev.getChargingTimeHours(), ev.getCategory(), ev.getImageUrl());
+    }
+}
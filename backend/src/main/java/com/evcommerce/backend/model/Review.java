@@ -5,9 +5,22 @@ import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", uniqueConstraints = {
+    @UniqueConstraint(name = Review.USER_EV_CONSTRAINT, columnNames = {"user_id", "ev_id"})
+}, indexes = {
+    @Index(name = "idx_review_ev_created", columnList = "ev_id, createdAt, id"),
+    @Index(name = "idx_review_ev_rating_created", columnList = "ev_id, rating, createdAt, id"),
+    @Index(name = "idx_review_ev_verified_created", columnList = "ev_id, verified, createdAt, id"),
+    @Index(name = "idx_review_ev_helpful_created", columnList = "ev_id, helpfulCount, createdAt, id"),
+    @Index(name = "idx_review_user_created", columnList = "user_id, createdAt, id"),
+    @Index(name = "idx_review_created", columnList = "createdAt, id"),
+    @Index(name = "idx_review_verified_created", columnList = "verified, createdAt, id")
+})
 public class Review {
     
+    // One review per user and vehicle, enforced by the database
+    public static final String USER_EV_CONSTRAINT = "uk_review_user_ev";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -40,6 +53,18 @@ public class Review {
     
     private boolean verified = false;
     
+    // Set when spam screening found a near-duplicate of an existing review
+    @Column(nullable = false, columnDefinition = "boolean not null default false")
+    private boolean flagged = false;
+    
+    // Helpfulness vote totals, written only by the batched counter flush in
+    // ReviewVoteService so entity saves never overwrite newer counts
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint not null default 0")
+    private long helpfulCount;
+    
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint not null default 0")
+    private long unhelpfulCount;
+    
     // Constructors
     public Review() {}
     
@@ -124,8 +149,32 @@ public class Review {
         this.verified = verified;
     }
     
+    public boolean isFlagged() {
+        return flagged;
+    }
+    
+    public void setFlagged(boolean flagged) {
+        this.flagged = flagged;
+    }
+    
+    public long getHelpfulCount() {
+        return helpfulCount;
+    }
+    
+    public void setHelpfulCount(long helpfulCount) {
+        this.helpfulCount = helpfulCount;
+    }
+    
+    public long getUnhelpfulCount() {
+        return unhelpfulCount;
+    }
+    
+    public void setUnhelpfulCount(long unhelpfulCount) {
+        this.unhelpfulCount = unhelpfulCount;
+    }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
-} 
\ No newline at end of file
+}
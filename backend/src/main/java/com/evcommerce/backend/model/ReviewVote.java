@@ -0,0 +1,94 @@
+package com.evcommerce.backend.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import java.time.LocalDateTime;
+
+// One helpful / unhelpful vote per user and review. The per-review totals
+// live on Review and are maintained from these rows in batches; votes go
+// away with their review or user through the cascading foreign keys.
+@Entity
+@Table(name = "review_votes", uniqueConstraints = {
+    @UniqueConstraint(name = ReviewVote.REVIEW_USER_CONSTRAINT, columnNames = {"review_id", "user_id"})
+}, indexes = {
+    // Finds a voter's votes when the account is deleted, for the retraction
+    // and the cascading delete
+    @Index(name = "idx_review_vote_user", columnList = "user_id")
+})
+public class ReviewVote {
+
+    public static final String REVIEW_USER_CONSTRAINT = "uk_review_vote_review_user";
+
+    public static final String REVIEW_FOREIGN_KEY = "fk_review_vote_review";
+
+    public static final String USER_FOREIGN_KEY = "fk_review_vote_user";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "review_id", nullable = false, foreignKey = @ForeignKey(name = REVIEW_FOREIGN_KEY))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Review review;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = USER_FOREIGN_KEY))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    private boolean helpful;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Constructors
+    public ReviewVote() {}
+
+    public ReviewVote(Review review, User user, boolean helpful) {
+        this.review = review;
+        this.user = user;
+        this.helpful = helpful;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Review getReview() {
+        return review;
+    }
+
+    public void setReview(Review review) {
+        this.review = review;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public boolean isHelpful() {
+        return helpful;
+    }
+
+    public void setHelpful(boolean helpful) {
+        this.helpful = helpful;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
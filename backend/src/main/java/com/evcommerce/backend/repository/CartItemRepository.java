@@ -3,6 +3,8 @@ package com.evcommerce.backend.repository;
 import com.evcommerce.backend.model.CartItem;
 import com.evcommerce.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -17,4 +19,17 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteByUser(User user);
     
     long countByUser(User user);
+    
+    // A user's cart rows with their vehicles, in the order they were added
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.ev WHERE c.user.id = :userId ORDER BY c.id")
+    List<CartItem> findByUserIdWithEv(@Param("userId") Long userId);
+    
+    @Query("SELECT c.user.id FROM CartItem c WHERE c.id = :cartItemId")
+    Optional<Long> findOwnerId(@Param("cartItemId") Long cartItemId);
+    
+    // [line count, total] of a user's cart in one statement, without loading
+    // any entity; no row when the user does not exist
+    @Query("SELECT COUNT(c.id), SUM(c.price * c.quantity) FROM User u LEFT JOIN CartItem c ON c.user = u " +
+           "WHERE u.id = :userId GROUP BY u.id")
+    List<Object[]> summarizeByUserId(@Param("userId") Long userId);
 } 
\ No newline at end of file
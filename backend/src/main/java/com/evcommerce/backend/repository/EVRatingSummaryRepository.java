@@ -0,0 +1,41 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.EVRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface EVRatingSummaryRepository extends JpaRepository<EVRatingSummary, Long> {
+
+    // Adds the deltas to the EV's row, creating it on first use. The row lock
+    // taken here serializes concurrent writers for the same EV until commit.
+    @Modifying
+    @Query(value = "INSERT INTO ev_rating_summaries AS s " +
+                   "(ev_id, count1, count2, count3, count4, count5, rating_sum, review_count, updated_at) " +
+                   "VALUES (:evId, :d1, :d2, :d3, :d4, :d5, :sumDelta, :countDelta, now()) " +
+                   "ON CONFLICT (ev_id) DO UPDATE SET " +
+                   "count1 = s.count1 + EXCLUDED.count1, count2 = s.count2 + EXCLUDED.count2, " +
+                   "count3 = s.count3 + EXCLUDED.count3, count4 = s.count4 + EXCLUDED.count4, " +
+                   "count5 = s.count5 + EXCLUDED.count5, rating_sum = s.rating_sum + EXCLUDED.rating_sum, " +
+                   "review_count = s.review_count + EXCLUDED.review_count, updated_at = now()",
+           nativeQuery = true)
+    int applyDelta(@Param("evId") Long evId,
+                   @Param("d1") long d1, @Param("d2") long d2, @Param("d3") long d3,
+                   @Param("d4") long d4, @Param("d5") long d5,
+                   @Param("sumDelta") long sumDelta, @Param("countDelta") long countDelta);
+
+    // Ensures a row exists so it can be locked, without touching existing counts
+    @Modifying
+    @Query(value = "INSERT INTO ev_rating_summaries " +
+                   "(ev_id, count1, count2, count3, count4, count5, rating_sum, review_count, updated_at) " +
+                   "VALUES (:evId, 0, 0, 0, 0, 0, 0, 0, now()) ON CONFLICT (ev_id) DO NOTHING",
+           nativeQuery = true)
+    int ensureRow(@Param("evId") Long evId);
+
+    @Query(value = "SELECT * FROM ev_rating_summaries WHERE ev_id = :evId FOR UPDATE", nativeQuery = true)
+    Optional<EVRatingSummary> lockByEvId(@Param("evId") Long evId);
+}
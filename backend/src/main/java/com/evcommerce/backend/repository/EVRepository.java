@@ -4,13 +4,16 @@ import com.evcommerce.backend.model.EV;
 import com.evcommerce.backend.model.EV.EVCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface EVRepository extends JpaRepository<EV, Long> {
+public interface EVRepository extends JpaRepository<EV, Long>, EVRepositoryCustom {
     
     List<EV> findByAvailableTrue();
     
@@ -38,4 +41,10 @@ public interface EVRepository extends JpaRepository<EV, Long> {
     
     @Query("SELECT DISTINCT e.brand FROM EV e WHERE e.available = true")
     List<String> findDistinctBrands();
+    
+    // Server-side cursor: must be consumed inside a transaction so the driver
+    // fetches rows in batches instead of buffering the whole result
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT e FROM EV e WHERE e.available = true AND e.id > :afterId ORDER BY e.id")
+    Stream<EV> streamAvailableAfter(@Param("afterId") Long afterId);
 } 
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EVSummary;
+import java.util.List;
+
+public interface EVRepositoryCustom {
+    
+    // Stable sort keys for keyset paging; id is always the tie-breaker
+    enum CatalogSort {
+        PRICE("price"), RANGE_KM("rangeKm"), ID("id");
+        
+        private final String property;
+        
+        CatalogSort(String property) {
+            this.property = property;
+        }
+        
+        public String getProperty() {
+            return property;
+        }
+        
+        public static CatalogSort fromProperty(String property) {
+            for (CatalogSort sort : values()) {
+                if (sort.property.equalsIgnoreCase(property)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort: " + property);
+        }
+    }
+    
+    // Returns up to limit available EVs that come strictly after the
+    // (afterValue, afterId) key in the requested order; a null afterId starts
+    // from the first page
+    List<EV> findAvailablePage(CatalogSort sort, boolean descending, Object afterValue, Long afterId, int limit);
+    
+    // Same page as findAvailablePage, selected straight into EVSummary rows
+    // without loading entities into the persistence context
+    List<EVSummary> findAvailableSummaryPage(CatalogSort sort, boolean descending, Object afterValue, Long afterId, int limit);
+}
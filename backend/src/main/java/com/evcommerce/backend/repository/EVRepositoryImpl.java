@@ -0,0 +1,73 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EVSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.util.List;
+
+public class EVRepositoryImpl implements EVRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private static final String SUMMARY_SELECTION =
+        "new com.evcommerce.backend.model.EVSummary(e.id, e.brand, e.model, e.price, e.rangeKm, " +
+        "e.batteryCapacityKwh, e.chargingTimeHours, e.category, e.imageUrl)";
+    
+    @Override
+    public List<EV> findAvailablePage(CatalogSort sort, boolean descending, Object afterValue, Long afterId, int limit) {
+        return findPage("e", EV.class, sort, descending, afterValue, afterId, limit);
+    }
+    
+    @Override
+    public List<EVSummary> findAvailableSummaryPage(CatalogSort sort, boolean descending, Object afterValue, Long afterId, int limit) {
+        return findPage(SUMMARY_SELECTION, EVSummary.class, sort, descending, afterValue, afterId, limit);
+    }
+    
+    private <T> List<T> findPage(String selection, Class<T> type, CatalogSort sort, boolean descending,
+                                 Object afterValue, Long afterId, int limit) {
+        TypedQuery<T> query = entityManager.createQuery(
+            "SELECT " + selection + " FROM EV e WHERE " + keysetPredicate(sort, descending, afterId != null) +
+            " ORDER BY " + orderBy(sort, descending), type);
+        
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (sort != CatalogSort.ID) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    // Keyset predicate over the (available, key, id) indexes. The redundant
+    // "key >= :afterValue" bound lets the planner start the index range scan
+    // at the cursor instead of filtering from the first row.
+    static String keysetPredicate(CatalogSort sort, boolean descending, boolean hasCursor) {
+        String key = "e." + sort.getProperty();
+        String predicate = "e.available = true";
+        if (sort != CatalogSort.ID) {
+            // Keyset comparisons never match NULL, so rows without a key are left out of every page
+            predicate += " AND " + key + " IS NOT NULL";
+        }
+        if (!hasCursor) {
+            return predicate;
+        }
+        String bound = descending ? "<=" : ">=";
+        String strict = descending ? "<" : ">";
+        if (sort == CatalogSort.ID) {
+            return predicate + " AND e.id " + strict + " :afterId";
+        }
+        return predicate + " AND " + key + " " + bound + " :afterValue" +
+               " AND (" + key + " " + strict + " :afterValue OR e.id " + strict + " :afterId)";
+    }
+    
+    static String orderBy(CatalogSort sort, boolean descending) {
+        String direction = descending ? " DESC" : " ASC";
+        if (sort == CatalogSort.ID) {
+            return "e.id" + direction;
+        }
+        return "e." + sort.getProperty() + direction + ", e.id" + direction;
+    }
+}
@@ -4,14 +4,20 @@ import com.evcommerce.backend.model.Review;
 import com.evcommerce.backend.model.EV;
 import com.evcommerce.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, ReviewRepositoryCustom {
     
     List<Review> findByEvOrderByCreatedAtDesc(EV ev);
     
@@ -22,6 +28,43 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT AVG(r.rating) FROM Review r WHERE r.ev = :ev")
     Double getAverageRatingByEv(@Param("ev") EV ev);
     
+    // One row of [evId, average, count] per reviewed vehicle in the set
+    @Query("SELECT r.ev.id, AVG(r.rating), COUNT(r) FROM Review r WHERE r.ev.id IN :evIds GROUP BY r.ev.id")
+    List<Object[]> getRatingStatsByEvIds(@Param("evIds") Collection<Long> evIds);
+    
+    // Rows of [rating, count] for one vehicle; ratings without reviews are absent
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.ev.id = :evId GROUP BY r.rating")
+    List<Object[]> getRatingCountsByEvId(@Param("evId") Long evId);
+    
+    // Rows of [evId, rating, count] for a set of vehicles
+    @Query("SELECT r.ev.id, r.rating, COUNT(r) FROM Review r WHERE r.ev.id IN :evIds GROUP BY r.ev.id, r.rating")
+    List<Object[]> getRatingCountsByEvIds(@Param("evIds") Collection<Long> evIds);
+    
+    // Rows of [evId, rating, count] across all vehicles, for reconciliation
+    @Query("SELECT r.ev.id, r.rating, COUNT(r) FROM Review r GROUP BY r.ev.id, r.rating")
+    List<Object[]> getRatingCountsByEv();
+    
+    // Bulk approval; reviews that are already verified are left untouched
+    @Modifying
+    @Query("UPDATE Review r SET r.verified = true, r.updatedAt = :now WHERE r.id IN :ids AND r.verified = false")
+    int verifyAll(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Rows of [evId, rating] for the unverified reviews among the ids, locked
+    // until the transaction ends
+    @Query(value = "SELECT ev_id, rating FROM reviews WHERE id IN (:ids) AND verified = false FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockRatingsByIds(@Param("ids") Collection<Long> ids);
+    
+    // Bulk rejection; verified reviews are left untouched, like verifyAll
+    @Modifying
+    @Query("DELETE FROM Review r WHERE r.id IN :ids AND r.verified = false")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+    
+    // Rows of [id, title, content] in id order; the fetch size hint makes the
+    // driver read in batches instead of buffering every review
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT r.id, r.title, r.content FROM Review r ORDER BY r.id")
+    Stream<Object[]> streamReviewTexts();
+    
     @Query("SELECT COUNT(r) FROM Review r WHERE r.ev = :ev")
     Long getReviewCountByEv(@Param("ev") EV ev);
     
@@ -31,9 +74,6 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE r.ev = :ev AND r.verified = true ORDER BY r.createdAt DESC")
     List<Review> findVerifiedReviewsByEv(@Param("ev") EV ev);
     
-    @Query("SELECT r FROM Review r WHERE r.rating >= :minRating ORDER BY r.createdAt DESC")
-    List<Review> findReviewsByMinRating(@Param("minRating") Integer minRating);
-    
     @Query("SELECT r FROM Review r WHERE r.ev = :ev ORDER BY r.rating DESC, r.createdAt DESC")
     List<Review> findByEvOrderByRatingDesc(EV ev);
 } 
\ No newline at end of file
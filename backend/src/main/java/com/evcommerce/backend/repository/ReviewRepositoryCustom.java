@@ -0,0 +1,50 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.Review;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ReviewRepositoryCustom {
+    
+    // Feed orders for keyset paging, always descending; createdAt and id break ties
+    enum ReviewFeedSort {
+        NEWEST("newest"), RATING("rating"), HELPFUL("helpful");
+        
+        private final String param;
+        
+        ReviewFeedSort(String param) {
+            this.param = param;
+        }
+        
+        public String getParam() {
+            return param;
+        }
+        
+        public static ReviewFeedSort fromParam(String param) {
+            for (ReviewFeedSort sort : values()) {
+                if (sort.param.equalsIgnoreCase(param)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort: " + param);
+        }
+    }
+    
+    // Returns up to limit reviews of an EV that come strictly after the
+    // (afterKey, afterCreatedAt, afterId) key. afterKey is the rating for the
+    // RATING order and the helpful count for HELPFUL, unused for NEWEST; a
+    // null afterId starts from the first page.
+    List<Review> findEvFeedPage(Long evId, boolean verifiedOnly, ReviewFeedSort sort,
+                                Long afterKey, LocalDateTime afterCreatedAt, Long afterId, int limit);
+    
+    // Newest-first reviews written by a user, after the (afterCreatedAt, afterId) key
+    List<Review> findUserFeedPage(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit);
+    
+    // Unverified reviews oldest first, after the (afterCreatedAt, afterId) key
+    List<Review> findPendingPage(LocalDateTime afterCreatedAt, Long afterId, int limit);
+    
+    // Newest reviews rated at least minRating, optionally limited to EVs of
+    // one brand and/or category; null scope values are not filtered on
+    List<Review> findTopReviews(Integer minRating, String brand, EVCategory category, int limit);
+}
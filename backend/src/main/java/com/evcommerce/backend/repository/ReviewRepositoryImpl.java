@@ -0,0 +1,119 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.Review;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // The author and vehicle are fetched in the same statement instead of one
+    // select per review
+    private static final String FEED_SELECTION = "SELECT r FROM Review r JOIN FETCH r.user JOIN FETCH r.ev WHERE ";
+    
+    @Override
+    public List<Review> findEvFeedPage(Long evId, boolean verifiedOnly, ReviewFeedSort sort,
+                                       Long afterKey, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        String filter = "r.ev.id = :ownerId" + (verifiedOnly ? " AND r.verified = true" : "");
+        TypedQuery<Review> query = entityManager.createQuery(
+            FEED_SELECTION + filter + " AND " + keysetPredicate(sort, afterId != null) +
+            " ORDER BY " + orderBy(sort), Review.class);
+        query.setParameter("ownerId", evId);
+        
+        if (afterId != null) {
+            query.setParameter("afterCreatedAt", afterCreatedAt);
+            query.setParameter("afterId", afterId);
+            if (sort == ReviewFeedSort.RATING) {
+                query.setParameter("afterKey", afterKey.intValue());
+            } else if (sort == ReviewFeedSort.HELPFUL) {
+                query.setParameter("afterKey", afterKey);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public List<Review> findUserFeedPage(Long userId, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        TypedQuery<Review> query = entityManager.createQuery(
+            FEED_SELECTION + "r.user.id = :ownerId AND " + keysetPredicate(ReviewFeedSort.NEWEST, afterId != null) +
+            " ORDER BY " + orderBy(ReviewFeedSort.NEWEST), Review.class);
+        query.setParameter("ownerId", userId);
+        
+        if (afterId != null) {
+            query.setParameter("afterCreatedAt", afterCreatedAt);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public List<Review> findPendingPage(LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        String keyset = afterId == null ? "" :
+            " AND r.createdAt >= :afterCreatedAt" +
+            " AND (r.createdAt > :afterCreatedAt OR (r.createdAt = :afterCreatedAt AND r.id > :afterId))";
+        TypedQuery<Review> query = entityManager.createQuery(
+            FEED_SELECTION + "r.verified = false AND r.createdAt IS NOT NULL" + keyset +
+            " ORDER BY r.createdAt ASC, r.id ASC", Review.class);
+        
+        if (afterId != null) {
+            query.setParameter("afterCreatedAt", afterCreatedAt);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public List<Review> findTopReviews(Integer minRating, String brand, EVCategory category, int limit) {
+        String scope = (brand != null ? " AND e.brand = :brand" : "") +
+                       (category != null ? " AND e.category = :category" : "");
+        TypedQuery<Review> query = entityManager.createQuery(
+            "SELECT r FROM Review r JOIN FETCH r.user JOIN FETCH r.ev e WHERE r.rating >= :minRating" + scope +
+            " AND r.createdAt IS NOT NULL ORDER BY " + orderBy(ReviewFeedSort.NEWEST), Review.class);
+        query.setParameter("minRating", minRating);
+        if (brand != null) {
+            query.setParameter("brand", brand);
+        }
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    // Keyset predicate over the (owner, [rating or helpful count,] created_at, id) indexes. As
+    // in the catalog pages, the redundant "<=" bound on the leading key lets
+    // the planner start the index range scan at the cursor.
+    static String keysetPredicate(ReviewFeedSort sort, boolean hasCursor) {
+        // Keyset comparisons never match NULL, so reviews without a timestamp are left out of every page
+        String predicate = "r.createdAt IS NOT NULL";
+        if (!hasCursor) {
+            return predicate;
+        }
+        String afterCreatedAt = "r.createdAt < :afterCreatedAt OR (r.createdAt = :afterCreatedAt AND r.id < :afterId)";
+        String leadingKey = leadingKey(sort);
+        if (leadingKey != null) {
+            return predicate + " AND " + leadingKey + " <= :afterKey" +
+                   " AND (" + leadingKey + " < :afterKey OR " + afterCreatedAt + ")";
+        }
+        return predicate + " AND r.createdAt <= :afterCreatedAt AND (" + afterCreatedAt + ")";
+    }
+    
+    static String orderBy(ReviewFeedSort sort) {
+        String newest = "r.createdAt DESC, r.id DESC";
+        String leadingKey = leadingKey(sort);
+        return leadingKey != null ? leadingKey + " DESC, " + newest : newest;
+    }
+    
+    private static String leadingKey(ReviewFeedSort sort) {
+        switch (sort) {
+            case RATING: return "r.rating";
+            case HELPFUL: return "r.helpfulCount";
+            default: return null;
+        }
+    }
+}
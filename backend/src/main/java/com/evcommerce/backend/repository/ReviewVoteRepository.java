@@ -0,0 +1,52 @@
+package com.evcommerce.backend.repository;
+
+import com.evcommerce.backend.model.ReviewVote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ReviewVoteRepository extends JpaRepository<ReviewVote, Long> {
+
+    // Returns 1 for a first vote and 0 when the user already voted on the review
+    @Modifying
+    @Query(value = "INSERT INTO review_votes (review_id, user_id, helpful, created_at) " +
+                   "VALUES (:reviewId, :userId, :helpful, now()) " +
+                   "ON CONFLICT ON CONSTRAINT uk_review_vote_review_user DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("reviewId") Long reviewId, @Param("userId") Long userId,
+                       @Param("helpful") boolean helpful);
+
+    // Returns 1 when an existing vote was switched to the other side
+    @Modifying
+    @Query(value = "UPDATE review_votes SET helpful = :helpful, created_at = now() " +
+                   "WHERE review_id = :reviewId AND user_id = :userId AND helpful <> :helpful",
+           nativeQuery = true)
+    int switchVote(@Param("reviewId") Long reviewId, @Param("userId") Long userId,
+                   @Param("helpful") boolean helpful);
+
+    // Persisted totals of a review as [helpfulCount, unhelpfulCount]
+    @Query("SELECT r.helpfulCount, r.unhelpfulCount FROM Review r WHERE r.id = :reviewId")
+    List<Object[]> getStoredCounts(@Param("reviewId") Long reviewId);
+
+    // Recounts the totals of every review from the vote rows and fixes the
+    // ones that drifted, e.g. counts lost in a crash before a flush. Reviews
+    // without any vote rows left are reset to zero.
+    @Modifying
+    @Query(value = "UPDATE reviews r SET helpful_count = coalesce(v.helpful, 0), unhelpful_count = coalesce(v.unhelpful, 0) " +
+                   "FROM reviews c LEFT JOIN (SELECT review_id, count(*) FILTER (WHERE helpful) AS helpful, " +
+                   "count(*) FILTER (WHERE NOT helpful) AS unhelpful " +
+                   "FROM review_votes GROUP BY review_id) v ON v.review_id = c.id " +
+                   "WHERE r.id = c.id " +
+                   "AND (r.helpful_count <> coalesce(v.helpful, 0) OR r.unhelpful_count <> coalesce(v.unhelpful, 0))",
+           nativeQuery = true)
+    int repairCounts();
+
+    // Rows of [reviewId, helpful] for every vote the user cast, locked until
+    // the transaction ends
+    @Query(value = "SELECT review_id, helpful FROM review_votes WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockVotesByUser(@Param("userId") Long userId);
+}
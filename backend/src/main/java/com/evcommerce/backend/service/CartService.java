@@ -1,36 +1,36 @@
 package com.evcommerce.backend.service;
 
 import com.evcommerce.backend.model.CartItem;
+import com.evcommerce.backend.model.CartOperation;
 import com.evcommerce.backend.model.EV;
-import com.evcommerce.backend.model.User;
-import com.evcommerce.backend.repository.CartItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
+// Cart operations are served by the in-memory CartStore, which writes them
+// behind to cart_items
 @Service
 public class CartService {
     
-    @Autowired
-    private CartItemRepository cartItemRepository;
+    private static final int MAX_BATCH_OPERATIONS = 50;
     
     @Autowired
-    private UserService userService;
+    private CartStore cartStore;
     
     @Autowired
     private EVService evService;
     
     public List<CartItem> getCartItems(Long userId) {
-        User user = userService.getUserById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        return cartItemRepository.findByUser(user);
+        return cartStore.getItems(userId);
     }
     
     public CartItem addToCart(Long userId, Long evId, Integer quantity) {
-        User user = userService.getUserById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
         
         EV ev = evService.getEVById(evId)
             .orElseThrow(() -> new RuntimeException("EV not found"));
@@ -39,54 +39,84 @@ public class CartService {
             throw new RuntimeException("EV is not available");
         }
         
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByUserAndEvId(user, evId);
+        return cartStore.add(userId, ev, quantity);
+    }
+    
+    // Applies add / update / remove operations together and returns the
+    // resulting cart. Every vehicle is checked against one catalog snapshot
+    // first, and nothing changes if any operation fails.
+    public List<CartItem> applyCartOperations(Long userId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Operations are required");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations are allowed");
+        }
         
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-            return cartItemRepository.save(item);
-        } else {
-            CartItem newItem = new CartItem(user, ev, quantity);
-            return cartItemRepository.save(newItem);
+        CatalogSnapshot catalog = evService.getSnapshot();
+        List<CartStore.Operation> steps = new ArrayList<>(operations.size());
+        for (CartOperation operation : operations) {
+            String type = operation.getType() != null ? operation.getType().toLowerCase() : "";
+            switch (type) {
+                case "add" -> {
+                    if (operation.getEvId() == null) {
+                        throw new IllegalArgumentException("EV id is required");
+                    }
+                    if (operation.getQuantity() == null || operation.getQuantity() <= 0) {
+                        throw new IllegalArgumentException("Quantity must be positive");
+                    }
+                    EV ev = catalog.getById(operation.getEvId())
+                        .orElseThrow(() -> new RuntimeException("EV not found"));
+                    if (!ev.isAvailable()) {
+                        throw new RuntimeException("EV is not available");
+                    }
+                    steps.add(CartStore.Operation.add(ev, operation.getQuantity()));
+                }
+                case "update" -> {
+                    if (operation.getQuantity() == null) {
+                        throw new IllegalArgumentException("Quantity is required");
+                    }
+                    steps.add(CartStore.Operation.setQuantity(requireCartItemId(operation), operation.getQuantity()));
+                }
+                case "remove" -> steps.add(CartStore.Operation.remove(requireCartItemId(operation)));
+                default -> throw new IllegalArgumentException("Unknown operation type: " + operation.getType());
+            }
         }
+        return cartStore.apply(userId, steps);
     }
     
     public CartItem updateCartItemQuantity(Long cartItemId, Integer quantity) {
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-            .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        
-        if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
-            return null;
+        if (quantity == null) {
+            throw new IllegalArgumentException("Quantity is required");
         }
-        
-        cartItem.setQuantity(quantity);
-        return cartItemRepository.save(cartItem);
+        return cartStore.updateQuantity(cartItemId, quantity);
     }
     
     public void removeFromCart(Long cartItemId) {
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-            .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        cartItemRepository.delete(cartItem);
+        cartStore.remove(cartItemId);
     }
     
+    // Inside checkout this deletes the rows in the order's transaction
     public void clearCart(Long userId) {
-        User user = userService.getUserById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        cartItemRepository.deleteByUser(user);
+        cartStore.clear(userId);
     }
     
     public BigDecimal getCartTotal(Long userId) {
-        List<CartItem> cartItems = getCartItems(userId);
-        return cartItems.stream()
-            .map(CartItem::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return cartStore.getTotal(userId);
     }
     
     public long getCartItemCount(Long userId) {
-        User user = userService.getUserById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        return cartItemRepository.countByUser(user);
+        return cartStore.getItemCount(userId);
+    }
+    
+    public Map<String, Object> getCartSummary(Long userId) {
+        return cartStore.getSummary(userId);
+    }
+    
+    private static Long requireCartItemId(CartOperation operation) {
+        if (operation.getCartItemId() == null) {
+            throw new IllegalArgumentException("Cart item id is required");
+        }
+        return operation.getCartItemId();
     }
 } 
\ No newline at end of file
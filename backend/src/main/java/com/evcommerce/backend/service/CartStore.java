@@ -0,0 +1,688 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.CartItem;
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.User;
+import com.evcommerce.backend.repository.CartItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Active carts held in memory and written behind to cart_items. Each user's
+// cart has its own lock, so cart requests only wait for the same user. A
+// cart is loaded once; after that reads and edits never touch the database
+// and the owner always sees their latest edits. Changed and removed lines
+// are remembered by id and a scheduled flush writes the current state of
+// every dirty cart in one batched transaction, so repeated edits between
+// flushes cost one row write. Edits not yet flushed (at most one flush
+// interval) are lost if the process dies; checkout writes synchronously.
+@Service
+public class CartStore {
+
+    // Keyed by the (user, vehicle) constraint, so a line can never be stored
+    // twice. It writes the line's absolute quantity rather than an increment,
+    // so a flush retried after a failure cannot count an add twice.
+    static final String UPSERT_SQL = "INSERT INTO cart_items (id, user_id, ev_id, quantity, price) VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT ON CONSTRAINT " + CartItem.USER_EV_CONSTRAINT + " DO UPDATE SET quantity = EXCLUDED.quantity, price = EXCLUDED.price, updated_at = now()";
+
+    // By the (user, vehicle) key rather than the id, so a line the upsert
+    // merged into a row stored under another id is removed as well
+    static final String DELETE_SQL = "DELETE FROM cart_items WHERE user_id = ? AND ev_id = ?";
+
+    static final String CLEAR_SQL = "DELETE FROM cart_items WHERE user_id = ?";
+
+    // Deletes a user's cart only if none of its lines was written since the cutoff
+    static final String SWEEP_SQL = "DELETE FROM cart_items c WHERE c.user_id = ? AND NOT EXISTS " +
+        "(SELECT 1 FROM cart_items f WHERE f.user_id = c.user_id AND f.updated_at >= ?)";
+
+    // Ids for new lines are reserved from the table's sequence in blocks
+    static final String RESERVE_IDS_SQL = "SELECT nextval('cart_items_id_seq') FROM generate_series(1, ?)";
+
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final int WRITE_BATCH_SIZE = 500;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EVService evService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${carts.idle-expiry-ms:1800000}")
+    private long idleExpiryMillis = 1_800_000;
+
+    private final ConcurrentHashMap<Long, Cart> carts = new ConcurrentHashMap<>();
+
+    // Owner of every cart line held in memory, for the by-id endpoints
+    private final ConcurrentHashMap<Long, Long> lineOwners = new ConcurrentHashMap<>();
+
+    // Carts with edits not yet written
+    private final Set<Cart> dirty = ConcurrentHashMap.newKeySet();
+
+    private final ArrayDeque<Long> reservedIds = new ArrayDeque<>();
+
+    // Users whose carts are being swept; guarded by its own monitor
+    private final Set<Long> sweeping = new HashSet<>();
+
+    private final AtomicInteger activeCheckouts = new AtomicInteger();
+
+    public List<CartItem> getItems(Long userId) {
+        return withCart(userId, cart -> {
+            List<CartItem> items = new ArrayList<>(cart.lines.size());
+            for (CartItem line : cart.lines.values()) {
+                items.add(copy(line));
+            }
+            return items;
+        });
+    }
+
+    public long getItemCount(Long userId) {
+        return (Long) summarize(userId)[0];
+    }
+
+    public BigDecimal getTotal(Long userId) {
+        return (BigDecimal) summarize(userId)[1];
+    }
+
+    // Line count and total together, for the cart badge
+    public Map<String, Object> getSummary(Long userId) {
+        Object[] summary = summarize(userId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", summary[0]);
+        result.put("total", summary[1]);
+        return result;
+    }
+
+    // Adds to the quantity of the EV's line, creating it at the EV's current price
+    public CartItem add(Long userId, EV ev, int quantity) {
+        return withCart(userId, cart -> {
+            CartItem line = cart.lines.get(ev.getId());
+            if (line != null) {
+                line.setQuantity(line.getQuantity() + quantity);
+            } else {
+                line = new CartItem(cart.user, ev, quantity);
+                line.setId(reserveId());
+                cart.lines.put(ev.getId(), line);
+                lineOwners.put(line.getId(), userId);
+            }
+            markChanged(cart, line.getId());
+            return copy(line);
+        });
+    }
+
+    // Sets a line's quantity; zero or less removes the line and returns null
+    public CartItem updateQuantity(Long cartItemId, int quantity) {
+        return withCart(ownerOf(cartItemId), cart -> {
+            CartItem line = findLine(cart.lines, cartItemId);
+            if (quantity <= 0) {
+                removeLine(cart, line);
+                return null;
+            }
+            line.setQuantity(quantity);
+            markChanged(cart, line.getId());
+            return copy(line);
+        });
+    }
+
+    public void remove(Long cartItemId) {
+        withCart(ownerOf(cartItemId), cart -> {
+            removeLine(cart, findLine(cart.lines, cartItemId));
+            return null;
+        });
+    }
+
+    // Applies the operations in order, all or none: they run on a copy of the
+    // cart's lines, which replaces the lines only once every step succeeded.
+    // The result is written by the next flush in a single transaction.
+    public List<CartItem> apply(Long userId, List<Operation> operations) {
+        return withCart(userId, cart -> {
+            Map<Long, CartItem> lines = new LinkedHashMap<>();
+            for (CartItem line : cart.lines.values()) {
+                lines.put(line.getEv().getId(), copy(line));
+            }
+            Set<Long> changed = new HashSet<>();
+            Map<Long, Long> removed = new HashMap<>();
+            for (Operation operation : operations) {
+                if (operation.ev != null) {
+                    CartItem line = lines.get(operation.ev.getId());
+                    if (line != null) {
+                        line.setQuantity(line.getQuantity() + operation.quantity);
+                    } else {
+                        line = new CartItem(cart.user, operation.ev, operation.quantity);
+                        line.setId(reserveId());
+                        lines.put(operation.ev.getId(), line);
+                    }
+                    changed.add(line.getId());
+                } else {
+                    CartItem line = findLine(lines, operation.cartItemId);
+                    if (operation.quantity <= 0) {
+                        lines.remove(line.getEv().getId());
+                        changed.remove(line.getId());
+                        removed.put(line.getId(), line.getEv().getId());
+                    } else {
+                        line.setQuantity(operation.quantity);
+                        changed.add(line.getId());
+                    }
+                }
+            }
+
+            cart.lines.clear();
+            cart.lines.putAll(lines);
+            for (Map.Entry<Long, Long> line : removed.entrySet()) {
+                lineOwners.remove(line.getKey());
+                cart.changed.remove(line.getKey());
+                cart.deleted.put(line.getKey(), line.getValue());
+            }
+            for (Long lineId : changed) {
+                lineOwners.put(lineId, userId);
+                cart.changed.add(lineId);
+            }
+            if (!changed.isEmpty() || !removed.isEmpty()) {
+                dirty.add(cart);
+            }
+            List<CartItem> items = new ArrayList<>(lines.size());
+            for (CartItem line : lines.values()) {
+                items.add(copy(line));
+            }
+            return items;
+        });
+    }
+
+    // Deletes the user's rows right away, inside the caller's transaction when
+    // there is one (checkout). The cart is kept from flushing until that
+    // transaction ends, so no write queued earlier can bring rows back, and
+    // the lines are dropped from memory only if it commits.
+    public void clear(Long userId) {
+        Cart cart = lockForWrite(userId);
+        Set<Long> cleared;
+        activeCheckouts.incrementAndGet();
+        try {
+            synchronized (cart) {
+                cleared = new HashSet<>(cart.deleted.keySet());
+                for (CartItem line : cart.lines.values()) {
+                    cleared.add(line.getId());
+                }
+            }
+            jdbcTemplate.update(CLEAR_SQL, userId);
+        } catch (RuntimeException e) {
+            activeCheckouts.decrementAndGet();
+            cart.writeLock.unlock();
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            discard(cart, cleared);
+            activeCheckouts.decrementAndGet();
+            cart.writeLock.unlock();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    discard(cart, cleared);
+                }
+                activeCheckouts.decrementAndGet();
+                cart.writeLock.unlock();
+            }
+        });
+    }
+
+    // Writes every dirty cart's current state in one transaction. Carts being
+    // cleared are skipped until the next run. A failed write is retried on the
+    // next run; a cart whose rows the database rejects (its user or vehicle
+    // was deleted) is dropped from memory and reloaded on next use.
+    @Scheduled(fixedDelayString = "${carts.flush-interval-ms:1000}",
+               initialDelayString = "${carts.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        List<Cart> batch = new ArrayList<>(dirty);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(Comparator.comparing(cart -> cart.userId));
+        List<Cart> locked = new ArrayList<>(batch.size());
+        for (Cart cart : batch) {
+            dirty.remove(cart);
+            if (cart.writeLock.tryLock()) {
+                locked.add(cart);
+            } else {
+                dirty.add(cart);
+            }
+        }
+
+        try {
+            Map<Cart, Changes> changes = new LinkedHashMap<>();
+            for (Cart cart : locked) {
+                synchronized (cart) {
+                    changes.put(cart, cart.takeChanges());
+                }
+            }
+            try {
+                write(changes.values());
+                return changes.size();
+            } catch (DataIntegrityViolationException e) {
+                // Find the offending carts by writing each one on its own
+                int written = 0;
+                for (Map.Entry<Cart, Changes> entry : changes.entrySet()) {
+                    try {
+                        write(List.of(entry.getValue()));
+                        written++;
+                    } catch (DataIntegrityViolationException rejected) {
+                        System.out.println("Dropping unwritable cart of user " + entry.getKey().userId + ": " + rejected.getMessage());
+                        evict(entry.getKey());
+                    } catch (RuntimeException retry) {
+                        restore(entry.getKey(), entry.getValue());
+                    }
+                }
+                return written;
+            } catch (BadSqlGrammarException e) {
+                // The schema does not match the statements (e.g. the unique
+                // constraint is missing); retrying cannot help, so keep the
+                // changes and fail every run until it is fixed
+                changes.forEach(this::restore);
+                throw new IllegalStateException("Cart flush rejected by the database schema; edits are kept in memory only", e);
+            } catch (RuntimeException e) {
+                changes.forEach(this::restore);
+                System.out.println("Cart flush failed, retrying next run: " + e.getMessage());
+                return 0;
+            }
+        } finally {
+            for (Cart cart : locked) {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    // Frees carts that have not been used for the idle expiry and have
+    // nothing left to write
+    @Scheduled(fixedDelayString = "${carts.eviction-interval-ms:60000}",
+               initialDelayString = "${carts.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleExpiryMillis;
+        for (Cart cart : carts.values()) {
+            if (cart.lastAccess >= cutoff || dirty.contains(cart) || !cart.writeLock.tryLock()) {
+                continue;
+            }
+            try {
+                synchronized (cart) {
+                    if (cart.lastAccess < cutoff && cart.changed.isEmpty() && cart.deleted.isEmpty()) {
+                        evict(cart);
+                    }
+                }
+            } finally {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    // Deletes the carts of these users that were not written since the
+    // cutoff, in one transaction. Carts held in memory are skipped: they are
+    // in use and may have edits the table does not show yet. Loading one of
+    // these carts waits until the delete is done, so a cart is never loaded
+    // from rows that are about to go. Returns the number of rows deleted.
+    public int sweep(Collection<Long> userIds, Timestamp cutoff) {
+        List<Long> claimed = new ArrayList<>(userIds.size());
+        synchronized (sweeping) {
+            for (Long userId : userIds) {
+                if (!carts.containsKey(userId) && sweeping.add(userId)) {
+                    claimed.add(userId);
+                }
+            }
+        }
+        try {
+            // A load that began before the claim has its cart registered by now
+            List<Object[]> args = new ArrayList<>(claimed.size());
+            for (Long userId : claimed) {
+                if (!carts.containsKey(userId)) {
+                    args.add(new Object[] {userId, cutoff});
+                }
+            }
+            if (args.isEmpty()) {
+                return 0;
+            }
+            int[] deleted = new TransactionTemplate(transactionManager).execute(status ->
+                jdbcTemplate.batchUpdate(SWEEP_SQL, args));
+            int rows = 0;
+            for (int count : deleted) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        } finally {
+            synchronized (sweeping) {
+                claimed.forEach(sweeping::remove);
+                sweeping.notifyAll();
+            }
+        }
+    }
+
+    // Checkouts between clearing the cart and the end of their transaction
+    public int getActiveCheckoutCount() {
+        return activeCheckouts.get();
+    }
+
+    public int getResidentCartCount() {
+        return carts.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Runs the action on the user's loaded cart while holding its lock. A
+    // cart evicted between lookup and locking is looked up again.
+    private <T> T withCart(Long userId, Function<Cart, T> action) {
+        while (true) {
+            Cart cart = carts.computeIfAbsent(userId, Cart::new);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                load(cart);
+                cart.lastAccess = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    // [line count, total] from memory when the cart is loaded. Otherwise one
+    // aggregate query instead of loading the cart: a cart that is not loaded
+    // has no unwritten edits, so its rows are current.
+    private Object[] summarize(Long userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null) {
+            synchronized (cart) {
+                if (!cart.evicted && cart.user != null) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (CartItem line : cart.lines.values()) {
+                        total = total.add(line.getTotalPrice());
+                    }
+                    return new Object[] {(long) cart.lines.size(), total};
+                }
+            }
+        }
+        List<Object[]> rows = cartItemRepository.summarizeByUserId(userId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("User not found");
+        }
+        BigDecimal total = (BigDecimal) rows.get(0)[1];
+        return new Object[] {((Number) rows.get(0)[0]).longValue(), total != null ? total : BigDecimal.ZERO};
+    }
+
+    private Cart lockForWrite(Long userId) {
+        while (true) {
+            Cart cart = carts.computeIfAbsent(userId, Cart::new);
+            cart.writeLock.lock();
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    try {
+                        load(cart);
+                    } catch (RuntimeException e) {
+                        cart.writeLock.unlock();
+                        throw e;
+                    }
+                    cart.lastAccess = System.currentTimeMillis();
+                    return cart;
+                }
+            }
+            cart.writeLock.unlock();
+        }
+    }
+
+    // Called with the cart locked
+    private void load(Cart cart) {
+        if (cart.user != null) {
+            return;
+        }
+        awaitSweep(cart.userId);
+        User user = userService.getUserById(cart.userId).orElse(null);
+        if (user == null) {
+            evict(cart);
+            throw new RuntimeException("User not found");
+        }
+        // Copies, so the shared lines are never managed by a persistence context
+        for (CartItem row : cartItemRepository.findByUserIdWithEv(cart.userId)) {
+            CartItem line = copy(row);
+            line.setUser(user);
+            line.setEv(evService.getEVById(row.getEv().getId()).orElse(row.getEv()));
+            cart.lines.put(line.getEv().getId(), line);
+            lineOwners.put(line.getId(), cart.userId);
+        }
+        cart.user = user;
+    }
+
+    private void awaitSweep(Long userId) {
+        synchronized (sweeping) {
+            while (sweeping.contains(userId)) {
+                try {
+                    sweeping.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while loading cart");
+                }
+            }
+        }
+    }
+
+    private Long ownerOf(Long cartItemId) {
+        Long userId = lineOwners.get(cartItemId);
+        if (userId != null) {
+            return userId;
+        }
+        return cartItemRepository.findOwnerId(cartItemId)
+            .orElseThrow(() -> new RuntimeException("Cart item not found"));
+    }
+
+    private static CartItem findLine(Map<Long, CartItem> lines, Long cartItemId) {
+        for (CartItem line : lines.values()) {
+            if (line.getId().equals(cartItemId)) {
+                return line;
+            }
+        }
+        throw new RuntimeException("Cart item not found");
+    }
+
+    private void markChanged(Cart cart, Long lineId) {
+        cart.changed.add(lineId);
+        dirty.add(cart);
+    }
+
+    private void removeLine(Cart cart, CartItem line) {
+        cart.lines.remove(line.getEv().getId());
+        lineOwners.remove(line.getId());
+        cart.changed.remove(line.getId());
+        cart.deleted.put(line.getId(), line.getEv().getId());
+        dirty.add(cart);
+    }
+
+    private void discard(Cart cart, Set<Long> lineIds) {
+        synchronized (cart) {
+            cart.lines.values().removeIf(line -> lineIds.contains(line.getId()));
+            cart.changed.removeAll(lineIds);
+            cart.deleted.keySet().removeAll(lineIds);
+            lineIds.forEach(lineOwners::remove);
+        }
+    }
+
+    private void restore(Cart cart, Changes changes) {
+        synchronized (cart) {
+            for (Object[] row : changes.upserts) {
+                cart.changed.add((Long) row[0]);
+            }
+            cart.deleted.putAll(changes.deletes);
+            dirty.add(cart);
+        }
+    }
+
+    private void evict(Cart cart) {
+        synchronized (cart) {
+            cart.evicted = true;
+            carts.remove(cart.userId, cart);
+            dirty.remove(cart);
+            for (CartItem line : cart.lines.values()) {
+                lineOwners.remove(line.getId());
+            }
+        }
+    }
+
+    private void write(Iterable<Changes> changes) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Changes cartChanges : changes) {
+            upserts.addAll(cartChanges.upserts);
+            for (Long evId : cartChanges.deletes.values()) {
+                deletes.add(new Object[] {cartChanges.userId, evId});
+            }
+        }
+        if (upserts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int from = 0; from < deletes.size(); from += WRITE_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes.subList(from, Math.min(deletes.size(), from + WRITE_BATCH_SIZE)));
+            }
+            for (int from = 0; from < upserts.size(); from += WRITE_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upserts.subList(from, Math.min(upserts.size(), from + WRITE_BATCH_SIZE)));
+            }
+        });
+    }
+
+    private Long reserveId() {
+        synchronized (reservedIds) {
+            if (reservedIds.isEmpty()) {
+                reservedIds.addAll(jdbcTemplate.queryForList(RESERVE_IDS_SQL, Long.class, ID_BLOCK_SIZE));
+            }
+            return reservedIds.poll();
+        }
+    }
+
+    private static CartItem copy(CartItem line) {
+        CartItem copy = new CartItem();
+        copy.setId(line.getId());
+        copy.setUser(line.getUser());
+        copy.setEv(line.getEv());
+        copy.setQuantity(line.getQuantity());
+        copy.setPrice(line.getPrice());
+        return copy;
+    }
+
+    // One step of a batch edit: add to the EV's line, or set a line's
+    // quantity where zero or less removes it
+    public static final class Operation {
+
+        private final EV ev;
+
+        private final Long cartItemId;
+
+        private final int quantity;
+
+        private Operation(EV ev, Long cartItemId, int quantity) {
+            this.ev = ev;
+            this.cartItemId = cartItemId;
+            this.quantity = quantity;
+        }
+
+        public static Operation add(EV ev, int quantity) {
+            return new Operation(ev, null, quantity);
+        }
+
+        public static Operation setQuantity(Long cartItemId, int quantity) {
+            return new Operation(null, cartItemId, quantity);
+        }
+
+        public static Operation remove(Long cartItemId) {
+            return new Operation(null, cartItemId, 0);
+        }
+    }
+
+    // Rows to upsert as (id, user_id, ev_id, quantity, price) and removed
+    // lines as line id -> ev id
+    private static final class Changes {
+
+        private final Long userId;
+
+        private final List<Object[]> upserts = new ArrayList<>();
+
+        private final Map<Long, Long> deletes = new HashMap<>();
+
+        Changes(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Cart {
+
+        private final Long userId;
+
+        // Serializes database writes for the cart: flushes and clears
+        private final ReentrantLock writeLock = new ReentrantLock();
+
+        // The fields below are guarded by the cart's monitor
+        private User user;
+
+        private final Map<Long, CartItem> lines = new LinkedHashMap<>();
+
+        private final Set<Long> changed = new HashSet<>();
+
+        // Removed lines not yet deleted: line id -> ev id
+        private final Map<Long, Long> deleted = new HashMap<>();
+
+        private boolean evicted;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Cart(Long userId) {
+            this.userId = userId;
+        }
+
+        Changes takeChanges() {
+            Changes changes = new Changes(userId);
+            for (CartItem line : lines.values()) {
+                if (changed.contains(line.getId())) {
+                    changes.upserts.add(new Object[] {
+                        line.getId(), userId, line.getEv().getId(), line.getQuantity(), line.getPrice()
+                    });
+                }
+            }
+            changes.deletes.putAll(deleted);
+            changed.clear();
+            deleted.clear();
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.evcommerce.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deletes carts nobody has written to for the abandoned-after period. Each
+// run walks the stale lines in (updated_at, id) order in bounded batches and
+// deletes whole carts, so a cart still in use keeps its older lines. A batch
+// is one short transaction; the sweeper pauses between batches, waits while
+// checkouts are in flight and stops after max-batches, leaving the rest for
+// the next run.
+@Service
+public class CartSweeper {
+
+    static final String CANDIDATES_SQL = "SELECT user_id, updated_at, id FROM cart_items " +
+        "WHERE updated_at < ? AND (updated_at, id) > (?, ?) ORDER BY updated_at, id LIMIT ?";
+
+    // Times a run waits out in-flight checkouts before ending early
+    private static final int MAX_DEFERRALS = 10;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${carts.sweep.abandoned-after-ms:604800000}")
+    private long abandonedAfterMillis = 604_800_000;
+
+    @Value("${carts.sweep.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${carts.sweep.max-batches:100}")
+    private int maxBatches = 100;
+
+    @Value("${carts.sweep.pause-ms:200}")
+    private long pauseMillis = 200;
+
+    // Totals since startup and figures of the last run
+    private final AtomicLong runs = new AtomicLong();
+
+    private final AtomicLong totalRowsSwept = new AtomicLong();
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Scheduled(fixedDelayString = "${carts.sweep.interval-ms:600000}",
+               initialDelayString = "${carts.sweep.interval-ms:600000}")
+    public synchronized int sweep() {
+        long started = System.currentTimeMillis();
+        Timestamp cutoff = new Timestamp(started - abandonedAfterMillis);
+        Timestamp afterUpdatedAt = new Timestamp(0);
+        long afterId = 0;
+        int rowsSwept = 0;
+        int batches = 0;
+        int deferrals = 0;
+        boolean complete = false;
+
+        while (batches < maxBatches) {
+            if (cartStore.getActiveCheckoutCount() > 0) {
+                if (++deferrals > MAX_DEFERRALS) {
+                    break;
+                }
+                pause();
+                continue;
+            }
+            List<Object[]> candidates = jdbcTemplate.query(CANDIDATES_SQL,
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getTimestamp(2), rs.getLong(3)},
+                cutoff, afterUpdatedAt, afterId, batchSize);
+            if (candidates.isEmpty()) {
+                complete = true;
+                break;
+            }
+            Set<Long> userIds = new LinkedHashSet<>();
+            for (Object[] candidate : candidates) {
+                userIds.add((Long) candidate[0]);
+            }
+            Object[] last = candidates.get(candidates.size() - 1);
+            afterUpdatedAt = (Timestamp) last[1];
+            afterId = (Long) last[2];
+
+            rowsSwept += cartStore.sweep(userIds, cutoff);
+            batches++;
+            if (candidates.size() < batchSize) {
+                complete = true;
+                break;
+            }
+            pause();
+        }
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", started);
+        run.put("durationMs", System.currentTimeMillis() - started);
+        run.put("rowsSwept", rowsSwept);
+        run.put("batches", batches);
+        run.put("deferrals", deferrals);
+        run.put("complete", complete);
+        lastRun = run;
+        runs.incrementAndGet();
+        totalRowsSwept.addAndGet(rowsSwept);
+        if (rowsSwept > 0) {
+            System.out.println("Swept " + rowsSwept + " abandoned cart rows in " + batches + " batches");
+        }
+        return rowsSwept;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("totalRowsSwept", totalRowsSwept.get());
+        stats.put("lastRun", lastRun);
+        stats.put("abandonedAfterMs", abandonedAfterMillis);
+        stats.put("batchSize", batchSize);
+        return stats;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
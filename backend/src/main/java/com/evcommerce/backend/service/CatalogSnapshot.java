@@ -0,0 +1,238 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.EVSummary;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Immutable, in-memory view of the whole catalog. A new snapshot is built on
+// every catalog write and swapped in atomically, so readers never block and
+// never observe a partially applied change.
+public final class CatalogSnapshot {
+
+    private final long version;
+
+    private final long builtAt;
+
+    // All vehicles ordered by id
+    private final List<EV> all;
+
+    private final List<EV> available;
+
+    private final Map<Long, EV> byId;
+
+    private final Map<String, List<EV>> byBrand;
+
+    private final Map<EVCategory, List<EV>> byCategory;
+
+    // Vehicles with a non-null price / range, ordered by that column for range lookups
+    private final List<EV> byPrice;
+
+    private final List<EV> byRange;
+
+    private final List<String> availableBrands;
+
+    private final EVFilterIndex filterIndex;
+
+    // Summary views are built once per snapshot so list responses reuse them
+    private final Map<Long, EVSummary> summaries;
+
+    private final List<EVSummary> availableSummaries;
+
+    public CatalogSnapshot(long version, List<EV> evs) {
+        this.version = version;
+        this.builtAt = System.currentTimeMillis();
+
+        List<EV> copies = new ArrayList<>(evs.size());
+        for (EV ev : evs) {
+            copies.add(copyOf(ev));
+        }
+        copies.sort(Comparator.comparing(EV::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Map<Long, EV> ids = new HashMap<>();
+        Map<String, List<EV>> brands = new HashMap<>();
+        Map<EVCategory, List<EV>> categories = new EnumMap<>(EVCategory.class);
+        List<EV> availableEVs = new ArrayList<>();
+        List<EV> priced = new ArrayList<>();
+        List<EV> ranged = new ArrayList<>();
+        Set<String> brandNames = new LinkedHashSet<>();
+
+        for (EV ev : copies) {
+            ids.put(ev.getId(), ev);
+            if (ev.getBrand() != null) {
+                brands.computeIfAbsent(ev.getBrand(), k -> new ArrayList<>()).add(ev);
+            }
+            if (ev.getCategory() != null) {
+                categories.computeIfAbsent(ev.getCategory(), k -> new ArrayList<>()).add(ev);
+            }
+            if (ev.isAvailable()) {
+                availableEVs.add(ev);
+                if (ev.getBrand() != null) {
+                    brandNames.add(ev.getBrand());
+                }
+            }
+            if (ev.getPrice() != null) {
+                priced.add(ev);
+            }
+            if (ev.getRangeKm() != null) {
+                ranged.add(ev);
+            }
+        }
+        priced.sort(Comparator.comparing(EV::getPrice));
+        ranged.sort(Comparator.comparing(EV::getRangeKm));
+
+        brands.replaceAll((brand, list) -> List.copyOf(list));
+        categories.replaceAll((category, list) -> List.copyOf(list));
+
+        this.all = List.copyOf(copies);
+        this.available = List.copyOf(availableEVs);
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byBrand = Collections.unmodifiableMap(brands);
+        this.byCategory = Collections.unmodifiableMap(categories);
+        this.byPrice = List.copyOf(priced);
+        this.byRange = List.copyOf(ranged);
+        this.availableBrands = List.copyOf(brandNames);
+        this.filterIndex = new EVFilterIndex(this.all);
+
+        Map<Long, EVSummary> summaryById = new HashMap<>();
+        for (EV ev : copies) {
+            summaryById.put(ev.getId(), EVSummary.of(ev));
+        }
+        this.summaries = Collections.unmodifiableMap(summaryById);
+        this.availableSummaries = summarize(this.available);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public List<EV> getAll() {
+        return all;
+    }
+
+    public List<EV> getAvailable() {
+        return available;
+    }
+
+    public Optional<EV> getById(Long id) {
+        return Optional.ofNullable(id != null ? byId.get(id) : null);
+    }
+
+    public List<EV> getByBrand(String brand) {
+        return byBrand.getOrDefault(brand, List.of());
+    }
+
+    public List<EV> getByCategory(EVCategory category) {
+        return byCategory.getOrDefault(category, List.of());
+    }
+
+    // Inclusive on both ends, matching SQL BETWEEN
+    public List<EV> getByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null || maxPrice == null || minPrice.compareTo(maxPrice) > 0) {
+            return List.of();
+        }
+        int from = lowerBound(byPrice, minPrice);
+        int to = upperBound(byPrice, maxPrice);
+        return byPrice.subList(from, to);
+    }
+
+    public List<EV> getByMinRange(Integer minRange) {
+        if (minRange == null) {
+            return List.of();
+        }
+        int from = 0;
+        int to = byRange.size();
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (byRange.get(mid).getRangeKm() < minRange) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return byRange.subList(from, byRange.size());
+    }
+
+    public List<String> getAvailableBrands() {
+        return availableBrands;
+    }
+
+    public List<EVSummary> getAvailableSummaries() {
+        return availableSummaries;
+    }
+
+    public List<EVSummary> summarize(List<EV> evs) {
+        List<EVSummary> result = new ArrayList<>(evs.size());
+        for (EV ev : evs) {
+            EVSummary summary = summaries.get(ev.getId());
+            result.add(summary != null ? summary : EVSummary.of(ev));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public List<EV> filter(String brand, EVCategory category,
+                           BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        return filterIndex.filter(brand, category, minPrice, maxPrice, minRange);
+    }
+
+    public Map<String, Object> facets(String brand, EVCategory category,
+                                      BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        return filterIndex.facets(brand, category, minPrice, maxPrice, minRange);
+    }
+
+    // First index whose price is >= the given price
+    private static int lowerBound(List<EV> sorted, BigDecimal price) {
+        int from = 0;
+        int to = sorted.size();
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted.get(mid).getPrice().compareTo(price) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // First index whose price is > the given price
+    private static int upperBound(List<EV> sorted, BigDecimal price) {
+        int from = 0;
+        int to = sorted.size();
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted.get(mid).getPrice().compareTo(price) <= 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // Snapshots hold detached copies so that later changes to managed entities
+    // in a persistence context can never leak into a published snapshot
+    private static EV copyOf(EV source) {
+        EV copy = new EV(source.getModel(), source.getBrand(), source.getDescription(), source.getPrice(),
+                source.getRangeKm(), source.getBatteryCapacityKwh(), source.getChargingTimeHours());
+        copy.setId(source.getId());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setCategory(source.getCategory());
+        copy.setAvailable(source.isAvailable());
+        return copy;
+    }
+}
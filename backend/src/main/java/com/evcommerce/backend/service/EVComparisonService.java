@@ -0,0 +1,220 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Builds side-by-side comparison matrices for a handful of vehicles. Specs
+// come from the catalog snapshot and review averages from one grouped query;
+// the computed matrix is cached per id set, independent of request order.
+@Service
+public class EVComparisonService {
+
+    static final int MAX_COMPARE_SIZE = 6;
+
+    private static final int MAX_CACHE_ENTRIES = 256;
+
+    // Review averages are not versioned like the catalog, so bound their staleness
+    private static final long CACHE_TTL_MILLIS = 60_000;
+
+    // Compared specs and whether a higher value is better
+    private static final Map<String, Boolean> HIGHER_IS_BETTER = new LinkedHashMap<>();
+
+    static {
+        HIGHER_IS_BETTER.put("price", false);
+        HIGHER_IS_BETTER.put("rangeKm", true);
+        HIGHER_IS_BETTER.put("batteryCapacityKwh", true);
+        HIGHER_IS_BETTER.put("chargingTimeHours", false);
+        HIGHER_IS_BETTER.put("pricePerKm", false);
+        HIGHER_IS_BETTER.put("kWhPer100Km", false);
+        HIGHER_IS_BETTER.put("averageRating", true);
+    }
+
+    @Autowired
+    private EVService evService;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    // LRU of computed matrices keyed by the sorted id tuple
+    private final Map<List<Long>, Matrix> cache = Collections.synchronizedMap(
+        new LinkedHashMap<List<Long>, Matrix>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Long>, Matrix> eldest) {
+                return size() > MAX_CACHE_ENTRIES;
+            }
+        });
+
+    public Map<String, Object> compare(List<Long> evIds) {
+        if (evIds == null || evIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one vehicle id is required");
+        }
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : evIds) {
+            if (id == null) {
+                throw new IllegalArgumentException("Vehicle ids must not be null");
+            }
+            requested.add(id);
+        }
+        if (requested.size() > MAX_COMPARE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_COMPARE_SIZE + " vehicles can be compared");
+        }
+
+        List<Long> key = new ArrayList<>(requested);
+        Collections.sort(key);
+        key = List.copyOf(key);
+
+        long catalogVersion = evService.getCatalogVersion();
+        long now = System.currentTimeMillis();
+        Matrix matrix = cache.get(key);
+        if (matrix == null || matrix.catalogVersion != catalogVersion || now - matrix.computedAt > CACHE_TTL_MILLIS) {
+            matrix = buildMatrix(key, catalogVersion, now);
+            cache.put(key, matrix);
+        }
+
+        // Rows are cached by id; only the ordering is per request
+        List<Map<String, Object>> vehicles = new ArrayList<>(requested.size());
+        for (Long id : requested) {
+            vehicles.add(matrix.rows.get(id));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ids", new ArrayList<>(requested));
+        result.put("vehicles", vehicles);
+        result.put("best", matrix.best);
+        return result;
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private Matrix buildMatrix(List<Long> ids, long catalogVersion, long computedAt) {
+        CatalogSnapshot snapshot = evService.getSnapshot();
+        List<EV> evs = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            evs.add(snapshot.getById(id).orElseThrow(() -> new RuntimeException("EV not found: " + id)));
+        }
+
+        Map<Long, Object[]> ratings = new HashMap<>();
+        for (Object[] row : reviewRepository.getRatingStatsByEvIds(ids)) {
+            ratings.put((Long) row[0], row);
+        }
+
+        Map<Long, Map<String, Object>> rows = new HashMap<>();
+        for (EV ev : evs) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", ev.getId());
+            row.put("brand", ev.getBrand());
+            row.put("model", ev.getModel());
+            row.put("category", ev.getCategory());
+            row.put("imageUrl", ev.getImageUrl());
+            row.put("price", ev.getPrice());
+            row.put("rangeKm", ev.getRangeKm());
+            row.put("batteryCapacityKwh", ev.getBatteryCapacityKwh());
+            row.put("chargingTimeHours", ev.getChargingTimeHours());
+            row.put("pricePerKm", ratio(ev.getPrice(), ev.getRangeKm(), 1));
+            row.put("kWhPer100Km", ev.getBatteryCapacityKwh() != null
+                ? ratio(BigDecimal.valueOf(ev.getBatteryCapacityKwh()), ev.getRangeKm(), 100) : null);
+
+            Object[] stats = ratings.get(ev.getId());
+            Double average = stats != null ? (Double) stats[1] : null;
+            row.put("averageRating", average != null
+                ? BigDecimal.valueOf(average).setScale(2, RoundingMode.HALF_UP) : null);
+            row.put("reviewCount", stats != null ? ((Number) stats[2]).longValue() : 0L);
+            rows.put(ev.getId(), row);
+        }
+
+        Map<String, List<Long>> best = new LinkedHashMap<>();
+        for (Map.Entry<String, Boolean> spec : HIGHER_IS_BETTER.entrySet()) {
+            best.put(spec.getKey(), normalize(evs, rows, spec.getKey(), spec.getValue()));
+        }
+
+        Map<Long, Map<String, Object>> frozen = new HashMap<>();
+        rows.forEach((id, row) -> {
+            row.computeIfPresent("normalized", (k, v) -> Collections.unmodifiableMap((Map<?, ?>) v));
+            frozen.put(id, Collections.unmodifiableMap(row));
+        });
+        return new Matrix(catalogVersion, computedAt, Collections.unmodifiableMap(frozen),
+            Collections.unmodifiableMap(best));
+    }
+
+    // Adds a 0..1 score per vehicle for the spec (1 = best in the set) under
+    // "normalized" and returns the ids sharing the best value
+    @SuppressWarnings("unchecked")
+    private List<Long> normalize(List<EV> evs, Map<Long, Map<String, Object>> rows, String spec, boolean higherIsBetter) {
+        Function<EV, BigDecimal> value = ev -> toDecimal(rows.get(ev.getId()).get(spec));
+        BigDecimal min = null;
+        BigDecimal max = null;
+        for (EV ev : evs) {
+            BigDecimal v = value.apply(ev);
+            if (v != null) {
+                min = min == null || v.compareTo(min) < 0 ? v : min;
+                max = max == null || v.compareTo(max) > 0 ? v : max;
+            }
+        }
+
+        List<Long> best = new ArrayList<>();
+        for (EV ev : evs) {
+            Map<String, Object> row = rows.get(ev.getId());
+            Map<String, Object> normalized = (Map<String, Object>) row.computeIfAbsent("normalized", k -> new LinkedHashMap<>());
+            BigDecimal v = value.apply(ev);
+            if (v == null) {
+                normalized.put(spec, null);
+                continue;
+            }
+            BigDecimal spread = max.subtract(min);
+            BigDecimal score = spread.signum() == 0
+                ? BigDecimal.ONE
+                : (higherIsBetter ? v.subtract(min) : max.subtract(v)).divide(spread, 3, RoundingMode.HALF_UP);
+            normalized.put(spec, score);
+            if (v.compareTo(higherIsBetter ? max : min) == 0) {
+                best.add(ev.getId());
+            }
+        }
+        return List.copyOf(best);
+    }
+
+    private static BigDecimal ratio(BigDecimal numerator, Integer rangeKm, int scale) {
+        if (numerator == null || rangeKm == null || rangeKm <= 0) {
+            return null;
+        }
+        return numerator.multiply(BigDecimal.valueOf(scale)).divide(BigDecimal.valueOf(rangeKm), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    private static final class Matrix {
+
+        private final long catalogVersion;
+
+        private final long computedAt;
+
+        private final Map<Long, Map<String, Object>> rows;
+
+        private final Map<String, List<Long>> best;
+
+        Matrix(long catalogVersion, long computedAt, Map<Long, Map<String, Object>> rows, Map<String, List<Long>> best) {
+            this.catalogVersion = catalogVersion;
+            this.computedAt = computedAt;
+            this.rows = rows;
+            this.best = best;
+        }
+    }
+}
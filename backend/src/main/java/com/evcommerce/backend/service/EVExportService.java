@@ -0,0 +1,75 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.repository.EVRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes the available catalog as newline-delimited JSON, one vehicle per
+// line in id order. Rows are pulled through a database cursor and detached
+// as soon as they are written, so memory use does not grow with the catalog.
+@Service
+public class EVExportService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private EVRepository evRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Exports vehicles with an id greater than afterId (all when null), so an
+    // interrupted pull can resume from the last id it received. Returns the
+    // number of vehicles written.
+    public long exportAvailable(Long afterId, OutputStream out) throws IOException {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            Long written = transaction.execute(status -> {
+                long count = 0;
+                try (Stream<EV> evs = evRepository.streamAvailableAfter(afterId != null ? afterId : 0L)) {
+                    Iterator<EV> iterator = evs.iterator();
+                    while (iterator.hasNext()) {
+                        EV ev = iterator.next();
+                        generator.writeObject(ev);
+                        generator.writeRaw('\n');
+                        entityManager.detach(ev);
+                        if (++count % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+            return written != null ? written : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            generator.close();
+        }
+    }
+}
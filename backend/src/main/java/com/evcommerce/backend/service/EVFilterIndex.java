@@ -0,0 +1,333 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Column-oriented filter index over a catalog snapshot. Brand, category and
+// availability are kept as bitsets; price and range are kept as sorted
+// primitive columns with a per-row rank, so a filter is answered with bitset
+// intersections and binary searches. Semantics match
+// EVRepository.findAvailableEVsWithFilters: only available vehicles, exact
+// brand/category match, inclusive price bounds and minimum range, and rows
+// with a null column never match a filter on that column.
+public final class EVFilterIndex {
+
+    private static final int NO_RANK = -1;
+
+    // Facet buckets: prices fall into [edge[i-1], edge[i]) with open ends,
+    // ranges are counted cumulatively as "at least threshold" to match minRange
+    static final BigDecimal[] PRICE_BUCKET_EDGES = {
+        new BigDecimal("30000"), new BigDecimal("40000"), new BigDecimal("50000"),
+        new BigDecimal("70000"), new BigDecimal("100000")
+    };
+
+    static final int[] RANGE_THRESHOLDS = {200, 300, 400, 500};
+
+    // Rows in id order; a row number is the position in this array
+    private final EV[] rows;
+
+    private final BitSet available;
+
+    private final Map<String, BitSet> brandBits;
+
+    private final BitSet[] categoryBits;
+
+    // Prices in ascending order, and for every row its position in that order
+    private final BigDecimal[] sortedPrices;
+
+    private final int[] priceRank;
+
+    private final int[] sortedRanges;
+
+    private final int[] rangeRank;
+
+    // Per-row facet coordinates, NO_RANK where the column is null
+    private final String[] brandNames;
+
+    private final int[] brandOrdinal;
+
+    private final int[] priceBucket;
+
+    private final int[] rangeLevel;
+
+    public EVFilterIndex(List<EV> evs) {
+        int size = evs.size();
+        this.rows = evs.toArray(new EV[0]);
+        this.available = new BitSet(size);
+        this.brandBits = new HashMap<>();
+        this.categoryBits = new BitSet[EVCategory.values().length];
+        for (int i = 0; i < categoryBits.length; i++) {
+            categoryBits[i] = new BitSet(size);
+        }
+
+        List<Integer> priced = new ArrayList<>();
+        List<Integer> ranged = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            EV ev = rows[row];
+            if (ev.isAvailable()) {
+                available.set(row);
+            }
+            if (ev.getBrand() != null) {
+                brandBits.computeIfAbsent(ev.getBrand(), k -> new BitSet(size)).set(row);
+            }
+            if (ev.getCategory() != null) {
+                categoryBits[ev.getCategory().ordinal()].set(row);
+            }
+            if (ev.getPrice() != null) {
+                priced.add(row);
+            }
+            if (ev.getRangeKm() != null) {
+                ranged.add(row);
+            }
+        }
+
+        priced.sort(Comparator.comparing(row -> rows[row].getPrice()));
+        this.sortedPrices = new BigDecimal[priced.size()];
+        this.priceRank = new int[size];
+        Arrays.fill(priceRank, NO_RANK);
+        for (int i = 0; i < priced.size(); i++) {
+            int row = priced.get(i);
+            sortedPrices[i] = rows[row].getPrice();
+            priceRank[row] = i;
+        }
+
+        ranged.sort(Comparator.comparing(row -> rows[row].getRangeKm()));
+        this.sortedRanges = new int[ranged.size()];
+        this.rangeRank = new int[size];
+        Arrays.fill(rangeRank, NO_RANK);
+        for (int i = 0; i < ranged.size(); i++) {
+            int row = ranged.get(i);
+            sortedRanges[i] = rows[row].getRangeKm();
+            rangeRank[row] = i;
+        }
+
+        this.brandNames = brandBits.keySet().toArray(new String[0]);
+        Arrays.sort(brandNames);
+        this.brandOrdinal = new int[size];
+        this.priceBucket = new int[size];
+        this.rangeLevel = new int[size];
+        for (int row = 0; row < size; row++) {
+            EV ev = rows[row];
+            brandOrdinal[row] = ev.getBrand() != null ? Arrays.binarySearch(brandNames, ev.getBrand()) : NO_RANK;
+            priceBucket[row] = ev.getPrice() != null ? upperBound(PRICE_BUCKET_EDGES, ev.getPrice()) : NO_RANK;
+            rangeLevel[row] = ev.getRangeKm() != null ? upperBound(RANGE_THRESHOLDS, ev.getRangeKm()) : NO_RANK;
+        }
+    }
+
+    public List<EV> filter(String brand, EVCategory category,
+                           BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        BitSet matches = (BitSet) available.clone();
+
+        if (brand != null) {
+            BitSet bits = brandBits.get(brand);
+            if (bits == null) {
+                return List.of();
+            }
+            matches.and(bits);
+        }
+        if (category != null) {
+            matches.and(categoryBits[category.ordinal()]);
+        }
+
+        // Price and range filters become rank windows [from, to)
+        boolean priceFiltered = minPrice != null || maxPrice != null;
+        int priceFrom = minPrice != null ? lowerBound(sortedPrices, minPrice) : 0;
+        int priceTo = maxPrice != null ? upperBound(sortedPrices, maxPrice) : sortedPrices.length;
+        boolean rangeFiltered = minRange != null;
+        int rangeFrom = rangeFiltered ? lowerBound(sortedRanges, minRange) : 0;
+
+        if (priceFiltered && priceFrom >= priceTo) {
+            return List.of();
+        }
+        if (rangeFiltered && rangeFrom >= sortedRanges.length) {
+            return List.of();
+        }
+
+        if (priceFiltered || rangeFiltered) {
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                if (priceFiltered && !inWindow(priceRank[row], priceFrom, priceTo)) {
+                    matches.clear(row);
+                } else if (rangeFiltered && !inWindow(rangeRank[row], rangeFrom, sortedRanges.length)) {
+                    matches.clear(row);
+                }
+            }
+        }
+
+        return collect(matches);
+    }
+
+    // Disjunctive facet counts in a single pass over the available rows. Each
+    // facet is counted against every filter except its own, so a brand count
+    // is exactly the number of results the same query would return with that
+    // brand selected instead; total is the size of filter(...) itself.
+    public Map<String, Object> facets(String brand, EVCategory category,
+                                      BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        BitSet selectedBrand = brand != null ? brandBits.getOrDefault(brand, new BitSet()) : null;
+        int priceFrom = minPrice != null ? lowerBound(sortedPrices, minPrice) : 0;
+        int priceTo = maxPrice != null ? upperBound(sortedPrices, maxPrice) : sortedPrices.length;
+        int rangeFrom = minRange != null ? lowerBound(sortedRanges, minRange) : 0;
+
+        int total = 0;
+        int[] brandCounts = new int[brandNames.length];
+        int[] categoryCounts = new int[EVCategory.values().length];
+        int[] priceCounts = new int[PRICE_BUCKET_EDGES.length + 1];
+        int[] rangeCounts = new int[RANGE_THRESHOLDS.length + 1];
+
+        for (int row = available.nextSetBit(0); row >= 0; row = available.nextSetBit(row + 1)) {
+            boolean brandOk = selectedBrand == null || selectedBrand.get(row);
+            boolean categoryOk = category == null || rows[row].getCategory() == category;
+            boolean priceOk = (minPrice == null && maxPrice == null) || inWindow(priceRank[row], priceFrom, priceTo);
+            boolean rangeOk = minRange == null || inWindow(rangeRank[row], rangeFrom, sortedRanges.length);
+
+            int failed = (brandOk ? 0 : 1) + (categoryOk ? 0 : 1) + (priceOk ? 0 : 1) + (rangeOk ? 0 : 1);
+            if (failed > 1) {
+                continue;
+            }
+            if (failed == 0) {
+                total++;
+            }
+            // A row failing exactly one filter still counts toward that filter's own facet
+            if ((failed == 0 || !brandOk) && brandOrdinal[row] != NO_RANK) {
+                brandCounts[brandOrdinal[row]]++;
+            }
+            if ((failed == 0 || !categoryOk) && rows[row].getCategory() != null) {
+                categoryCounts[rows[row].getCategory().ordinal()]++;
+            }
+            if ((failed == 0 || !priceOk) && priceBucket[row] != NO_RANK) {
+                priceCounts[priceBucket[row]]++;
+            }
+            if ((failed == 0 || !rangeOk) && rangeLevel[row] != NO_RANK) {
+                rangeCounts[rangeLevel[row]]++;
+            }
+        }
+
+        Map<String, Integer> brands = new TreeMap<>();
+        for (int i = 0; i < brandNames.length; i++) {
+            if (brandCounts[i] > 0) {
+                brands.put(brandNames[i], brandCounts[i]);
+            }
+        }
+        Map<String, Integer> categories = new LinkedHashMap<>();
+        for (EVCategory value : EVCategory.values()) {
+            categories.put(value.name(), categoryCounts[value.ordinal()]);
+        }
+        List<Map<String, Object>> prices = new ArrayList<>();
+        for (int i = 0; i <= PRICE_BUCKET_EDGES.length; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("min", i > 0 ? PRICE_BUCKET_EDGES[i - 1] : null);
+            bucket.put("max", i < PRICE_BUCKET_EDGES.length ? PRICE_BUCKET_EDGES[i] : null);
+            bucket.put("count", priceCounts[i]);
+            prices.add(bucket);
+        }
+        // Cumulative from the top so each threshold counts every range at or above it
+        List<Map<String, Object>> ranges = new ArrayList<>();
+        int atLeast = 0;
+        for (int i = RANGE_THRESHOLDS.length - 1; i >= 0; i--) {
+            atLeast += rangeCounts[i + 1];
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("minRange", RANGE_THRESHOLDS[i]);
+            bucket.put("count", atLeast);
+            ranges.add(0, bucket);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", total);
+        result.put("brands", brands);
+        result.put("categories", categories);
+        result.put("priceBuckets", prices);
+        result.put("rangeBuckets", ranges);
+        return result;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    private List<EV> collect(BitSet matches) {
+        int count = matches.cardinality();
+        if (count == 0) {
+            return List.of();
+        }
+        EV[] result = new EV[count];
+        int i = 0;
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            result[i++] = rows[row];
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    private static boolean inWindow(int rank, int from, int to) {
+        return rank != NO_RANK && rank >= from && rank < to;
+    }
+
+    // First index whose value is >= key
+    static int lowerBound(BigDecimal[] sorted, BigDecimal key) {
+        int from = 0;
+        int to = sorted.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // First index whose value is > key
+    static int upperBound(BigDecimal[] sorted, BigDecimal key) {
+        int from = 0;
+        int to = sorted.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid].compareTo(key) <= 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // First index whose value is > key
+    static int upperBound(int[] sorted, int key) {
+        int from = 0;
+        int to = sorted.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid] <= key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // First index whose value is >= key
+    static int lowerBound(int[] sorted, int key) {
+        int from = 0;
+        int to = sorted.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid] < key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,463 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bulk catalog import. Rows are parsed and validated one at a time and the
+// valid ones are streamed into a temporary table with COPY; a single
+// INSERT ... ON CONFLICT then upserts them into electric_vehicles, keyed by
+// the unique (brand, model), in the same transaction.
+@Service
+public class EVImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE ev_import_staging (" +
+        "line integer, model varchar(255), brand varchar(255), description varchar(1000), price numeric(38,2), " +
+        "range_km integer, battery_capacity_kwh integer, charging_time_hours integer, image_url varchar(255), " +
+        "category varchar(255), available boolean) ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+        "COPY ev_import_staging (line, model, brand, description, price, range_km, battery_capacity_kwh, " +
+        "charging_time_hours, image_url, category, available) FROM STDIN WITH (FORMAT csv)";
+
+    // Later rows win when a file lists the same vehicle more than once
+    private static final String LATEST_ROWS =
+        "(SELECT DISTINCT ON (brand, model) * FROM ev_import_staging ORDER BY brand, model, line DESC) s";
+
+    // Inserted rows have no xmax yet, updated ones carry the upserting transaction's
+    private static final String UPSERT_LATEST =
+        "WITH upserted AS (INSERT INTO electric_vehicles AS e (model, brand, description, price, range_km, " +
+        "battery_capacity_kwh, charging_time_hours, image_url, category, available) " +
+        "SELECT s.model, s.brand, s.description, s.price, s.range_km, s.battery_capacity_kwh, " +
+        "s.charging_time_hours, s.image_url, s.category, s.available FROM " + LATEST_ROWS +
+        " ON CONFLICT ON CONSTRAINT " + EV.BRAND_MODEL_CONSTRAINT + " DO UPDATE SET " +
+        "description = EXCLUDED.description, price = EXCLUDED.price, range_km = EXCLUDED.range_km, " +
+        "battery_capacity_kwh = EXCLUDED.battery_capacity_kwh, charging_time_hours = EXCLUDED.charging_time_hours, " +
+        "image_url = COALESCE(EXCLUDED.image_url, e.image_url), category = COALESCE(EXCLUDED.category, e.category), " +
+        "available = EXCLUDED.available RETURNING xmax = 0 AS inserted) " +
+        "SELECT count(*) FILTER (WHERE inserted), count(*) FILTER (WHERE NOT inserted) FROM upserted";
+
+    public enum Format { CSV, NDJSON }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EVService evService;
+
+    public static Format formatOf(String contentType) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        if (type.startsWith("text/csv")) {
+            return Format.CSV;
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+            return Format.NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported import format: use text/csv or application/x-ndjson");
+    }
+
+    public Map<String, Object> importCatalog(InputStream in, Format format) {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING);
+                }
+                CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                try {
+                    CopyWriter writer = new CopyWriter(copy);
+                    readRows(in, format, (line, fields) -> {
+                        List<String> errors = validate(fields);
+                        if (errors.isEmpty()) {
+                            writer.write(toCopyLine(line, fields));
+                            report.accepted++;
+                        } else {
+                            report.reject(line, errors);
+                        }
+                    });
+                    writer.flush();
+                    copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+                try (Statement statement = connection.createStatement()) {
+                    // Temp tables have no statistics until analyzed; without them
+                    // the planner picks nested loops for the upsert joins
+                    statement.execute("ANALYZE ev_import_staging");
+                    try (ResultSet counts = statement.executeQuery(UPSERT_LATEST)) {
+                        counts.next();
+                        report.inserted = counts.getInt(1);
+                        report.updated = counts.getInt(2);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Import failed: " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+
+        if (report.updated + report.inserted > 0) {
+            evService.reloadCatalog();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", report.accepted);
+        result.put("inserted", report.inserted);
+        result.put("updated", report.updated);
+        result.put("rejected", report.rejected);
+        result.put("errors", report.errors);
+        result.put("elapsedMillis", (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    interface RowHandler {
+        void accept(int line, Map<String, String> fields) throws IOException;
+    }
+
+    // Calls the handler for every data row with its 1-based line number in the input
+    void readRows(InputStream in, Format format, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+        // Excel and Notepad start UTF-8 exports with a byte order mark, which
+        // would otherwise become part of the first header name
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        if (format == Format.CSV) {
+            readCsv(reader, handler);
+        } else {
+            readNdjson(reader, handler);
+        }
+    }
+
+    private void readCsv(BufferedReader reader, RowHandler handler) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            header.set(i, header.get(i).trim());
+        }
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < record.size(); i++) {
+                String value = record.get(i);
+                fields.put(header.get(i), value.isEmpty() ? null : value);
+            }
+            if (record.size() != header.size()) {
+                fields.put("_columns", record.size() + " columns, expected " + header.size());
+            }
+            handler.accept(csv.recordLine, fields);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, RowHandler handler) throws IOException {
+        String text;
+        int line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (!node.isObject()) {
+                    fields.put("_json", "Line is not a JSON object");
+                } else {
+                    Iterator<Map.Entry<String, JsonNode>> values = node.fields();
+                    while (values.hasNext()) {
+                        Map.Entry<String, JsonNode> value = values.next();
+                        if (!value.getValue().isNull()) {
+                            fields.put(value.getKey(), value.getValue().asText());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                fields.put("_json", "Malformed JSON");
+            }
+            handler.accept(line, fields);
+        }
+    }
+
+    // Same rules as the constraints on the EV entity
+    static List<String> validate(Map<String, String> fields) {
+        List<String> errors = new ArrayList<>();
+        if (fields.containsKey("_json")) {
+            errors.add(fields.get("_json"));
+            return errors;
+        }
+        if (fields.containsKey("_columns")) {
+            errors.add("Row has " + fields.get("_columns"));
+            return errors;
+        }
+        requireText(fields, "model", "Model name is required", 255, errors);
+        requireText(fields, "brand", "Brand is required", 255, errors);
+        requireText(fields, "description", "Description is required", 1000, errors);
+
+        String price = fields.get("price");
+        if (price == null || price.isBlank()) {
+            errors.add("Price is required");
+        } else {
+            try {
+                BigDecimal value = new BigDecimal(price.trim());
+                if (value.signum() <= 0) {
+                    errors.add("Price must be positive");
+                } else if (value.scale() > 2 || value.precision() - value.scale() > 36) {
+                    errors.add("Price must have at most 2 decimal places");
+                }
+            } catch (NumberFormatException e) {
+                errors.add("Price must be a number");
+            }
+        }
+        requirePositiveInt(fields, "rangeKm", "Range", errors);
+        requirePositiveInt(fields, "batteryCapacityKwh", "Battery capacity", errors);
+        requirePositiveInt(fields, "chargingTimeHours", "Charging time", errors);
+
+        String imageUrl = fields.get("imageUrl");
+        if (imageUrl != null && imageUrl.length() > 255) {
+            errors.add("Image URL must be at most 255 characters");
+        }
+        String category = fields.get("category");
+        if (category != null && !category.isBlank()) {
+            try {
+                EVCategory.valueOf(category.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                errors.add("Unknown category: " + category);
+            }
+        }
+        String available = fields.get("available");
+        if (available != null && !available.isBlank()
+                && !available.trim().equalsIgnoreCase("true") && !available.trim().equalsIgnoreCase("false")) {
+            errors.add("Available must be true or false");
+        }
+        return errors;
+    }
+
+    // One CSV record in the staging table's column order; an unquoted empty field is NULL
+    static String toCopyLine(int line, Map<String, String> fields) {
+        StringBuilder out = new StringBuilder(256);
+        out.append(line);
+        appendQuoted(out, fields.get("model"));
+        appendQuoted(out, fields.get("brand"));
+        appendQuoted(out, fields.get("description"));
+        appendQuoted(out, new BigDecimal(fields.get("price").trim()).toPlainString());
+        appendQuoted(out, fields.get("rangeKm").trim());
+        appendQuoted(out, fields.get("batteryCapacityKwh").trim());
+        appendQuoted(out, fields.get("chargingTimeHours").trim());
+        appendQuoted(out, fields.get("imageUrl"));
+        String category = fields.get("category");
+        appendQuoted(out, category != null && !category.isBlank() ? category.trim().toUpperCase(Locale.ROOT) : null);
+        String available = fields.get("available");
+        appendQuoted(out, available != null && !available.isBlank() ? available.trim().toLowerCase(Locale.ROOT) : "true");
+        return out.append('\n').toString();
+    }
+
+    private static void appendQuoted(StringBuilder out, String value) {
+        out.append(',');
+        if (value == null) {
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void requireText(Map<String, String> fields, String field, String message, int maxLength,
+                                    List<String> errors) {
+        String value = fields.get(field);
+        if (value == null || value.isBlank()) {
+            errors.add(message);
+        } else if (value.length() > maxLength) {
+            errors.add(field + " must be at most " + maxLength + " characters");
+        }
+    }
+
+    private static void requirePositiveInt(Map<String, String> fields, String field, String label,
+                                           List<String> errors) {
+        String value = fields.get(field);
+        if (value == null || value.isBlank()) {
+            errors.add(label + " is required");
+            return;
+        }
+        try {
+            if (Integer.parseInt(value.trim()) <= 0) {
+                errors.add(label + " must be positive");
+            }
+        } catch (NumberFormatException e) {
+            errors.add(label + " must be a whole number");
+        }
+    }
+
+    private static final class ImportReport {
+
+        private int accepted;
+
+        private int inserted;
+
+        private int updated;
+
+        private int rejected;
+
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+
+        void reject(int line, List<String> messages) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", line);
+                error.put("errors", messages);
+                errors.add(error);
+            }
+        }
+    }
+
+    // Buffers COPY data so the driver sees large writes instead of one per row
+    private static final class CopyWriter {
+
+        private final CopyIn copy;
+
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+
+        CopyWriter(CopyIn copy) {
+            this.copy = copy;
+        }
+
+        void write(String line) throws IOException {
+            buffer.append(line);
+            if (buffer.length() >= COPY_BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (buffer.length() == 0) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copy.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            buffer.setLength(0);
+        }
+    }
+
+    // RFC 4180 records: quoted fields may contain commas, doubled quotes and line breaks
+    static final class CsvReader {
+
+        private final BufferedReader reader;
+
+        private int line;
+
+        private int recordLine;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+            List<String> record = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            record.add(field.toString());
+            return record;
+        }
+    }
+}
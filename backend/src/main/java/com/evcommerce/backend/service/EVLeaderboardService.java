@@ -0,0 +1,211 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// "Best rated vehicles" ranking. Each reviewed EV is scored by the lower
+// bound of its Bayesian mean rating (uniform Dirichlet prior of one review
+// per star), so a single 5-star review does not outrank hundreds of 4-star
+// ones. Scores depend only on the EV's own rating counts, so a review write
+// repositions one entry in the sorted set in O(log n). Each category keeps
+// its own sorted set too, so a category page never walks other categories.
+@Service
+public class EVLeaderboardService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // One-sided 95% confidence
+    private static final double Z = 1.65;
+
+    private static final Comparator<Ranked> ORDER = Comparator
+        .comparingDouble((Ranked r) -> r.score).reversed()
+        .thenComparingLong(r -> r.evId);
+
+    @Autowired
+    private RatingAggregateService ratingAggregateService;
+
+    @Autowired
+    private EVService evService;
+
+    private final ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    // The same entries split by the EV's category
+    private final Map<EVCategory, ConcurrentSkipListSet<Ranked>> categoryRankings = new EnumMap<>(EVCategory.class);
+
+    // Each EV's current entry in the ranking, so it can be removed on update
+    private final ConcurrentHashMap<Long, Ranked> entries = new ConcurrentHashMap<>();
+
+    // Catalog version the entries' categories were last checked against
+    private volatile long categoriesVersion = -1;
+
+    public EVLeaderboardService() {
+        for (EVCategory category : EVCategory.values()) {
+            categoryRankings.put(category, new ConcurrentSkipListSet<>(ORDER));
+        }
+    }
+
+    // Loaded once the application is ready, after startup seeding: reading
+    // categories builds the catalog snapshot, which must not happen while the
+    // context is still starting
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        // Registered before the initial load so no change in between is missed
+        ratingAggregateService.addListener(this::update);
+        categoriesVersion = evService.getCatalogVersion();
+        for (Long evId : ratingAggregateService.getTrackedEvIds()) {
+            update(evId);
+        }
+    }
+
+    // Re-reads the EV's counts and category and moves its entry in both sets.
+    // compute serializes updates per EV, and the last one always sees the
+    // newest counts.
+    public void update(Long evId) {
+        entries.compute(evId, (id, previous) -> {
+            if (previous != null) {
+                ranking.remove(previous);
+                if (previous.category != null) {
+                    categoryRankings.get(previous.category).remove(previous);
+                }
+            }
+            long[] counts = ratingAggregateService.getCounts(id);
+            long reviewCount = 0;
+            long ratingSum = 0;
+            for (int i = 0; i < 5; i++) {
+                reviewCount += counts[i];
+                ratingSum += (i + 1) * counts[i];
+            }
+            if (reviewCount == 0) {
+                return null;
+            }
+            EVCategory category = evService.getEVById(id).map(EV::getCategory).orElse(null);
+            Ranked ranked = new Ranked(id, score(counts), (double) ratingSum / reviewCount, reviewCount, category);
+            ranking.add(ranked);
+            if (category != null) {
+                categoryRankings.get(category).add(ranked);
+            }
+            return ranked;
+        });
+    }
+
+    // Keyset page over the ranking; the cursor is the (score, evId) of the
+    // last entry on the previous page. Unavailable EVs are skipped.
+    public Map<String, Object> getPage(EVCategory category, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        NavigableSet<Ranked> remaining = ranking;
+        if (category != null) {
+            recategorize();
+            remaining = categoryRankings.get(category);
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = PageCursor.decode(cursor, 2);
+            try {
+                Ranked after = new Ranked(Long.parseLong(keys[1]), Double.parseDouble(keys[0]), 0, 0, null);
+                remaining = remaining.tailSet(after, false);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        Ranked last = null;
+        boolean more = false;
+        for (Ranked ranked : remaining) {
+            Optional<EV> ev = evService.getEVById(ranked.evId);
+            if (ev.isEmpty() || !ev.get().isAvailable()
+                    || (category != null && ev.get().getCategory() != category)) {
+                continue;
+            }
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ev", ev.get());
+            item.put("score", ranked.score);
+            item.put("averageRating", ranked.averageRating);
+            item.put("reviewCount", ranked.reviewCount);
+            items.add(item);
+            last = ranked;
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("size", items.size());
+        page.put("nextCursor", more ? PageCursor.encode(last.score, last.evId) : null);
+        return page;
+    }
+
+    // Review writes are the only updates, so an EV whose category was edited
+    // in the catalog is moved here, once per catalog version
+    private void recategorize() {
+        long version = evService.getCatalogVersion();
+        if (version == categoriesVersion) {
+            return;
+        }
+        for (Ranked ranked : entries.values()) {
+            EVCategory category = evService.getEVById(ranked.evId).map(EV::getCategory).orElse(null);
+            if (category != ranked.category) {
+                update(ranked.evId);
+            }
+        }
+        categoriesVersion = version;
+    }
+
+    // Lower confidence bound of the posterior mean rating: n_k reviews with
+    // k stars plus one prior review per star
+    static double score(long[] counts) {
+        double total = 0;
+        double mean = 0;
+        double secondMoment = 0;
+        for (int i = 0; i < 5; i++) {
+            int stars = i + 1;
+            double weight = counts[i] + 1;
+            total += weight;
+            mean += stars * weight;
+            secondMoment += stars * stars * weight;
+        }
+        mean /= total;
+        secondMoment /= total;
+        return mean - Z * Math.sqrt((secondMoment - mean * mean) / (total + 1));
+    }
+
+    private static final class Ranked {
+
+        private final long evId;
+
+        private final double score;
+
+        private final double averageRating;
+
+        private final long reviewCount;
+
+        private final EVCategory category;
+
+        Ranked(long evId, double score, double averageRating, long reviewCount, EVCategory category) {
+            this.evId = evId;
+            this.score = score;
+            this.averageRating = averageRating;
+            this.reviewCount = reviewCount;
+            this.category = category;
+        }
+    }
+}
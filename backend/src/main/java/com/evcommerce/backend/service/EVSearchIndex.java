@@ -0,0 +1,1030 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over EV model, brand and description, ranked with
+// BM25. Query terms match exactly, by prefix (for type-ahead) and, when a
+// term has neither, by trigram similarity (for typos).
+//
+// Documents get dense int ordinals and postings are primitive arrays.
+// Ordinals are grouped into fixed windows of small blocks, and terms common
+// enough to be expensive keep their best impact per block and per window, so
+// a query can bound the best score anywhere without touching postings.
+// Windows are then scored best bound first, skipping blocks that cannot make
+// the top results, each with a few tight loops over int arrays and reusable
+// per-thread accumulators, and the query stops once no remaining window can
+// beat the current top results. Results are the same as scoring every posting.
+//
+// Updates are incremental: a changed document is tombstoned and appended
+// under a new ordinal, and the index compacts itself once tombstones make up
+// half of the ordinals.
+public class EVSearchIndex {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    // Term frequency weight per field, so a hit in the model name outranks one in the description
+    private static final int MODEL_WEIGHT = 3;
+
+    private static final int BRAND_WEIGHT = 2;
+
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final float PREFIX_MATCH_BOOST = 0.8f;
+
+    private static final float FUZZY_MATCH_BOOST = 0.5f;
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // Upper bound on terms a single prefix or fuzzy token expands to
+    private static final int MAX_EXPANSIONS = 50;
+
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.3;
+
+    private static final int WINDOW_SHIFT = 7;
+
+    private static final int WINDOW_SIZE = 1 << WINDOW_SHIFT;
+
+    // Blocks within a window; a window's blocks must fit the bits of an int
+    private static final int BLOCK_SHIFT = 3;
+
+    private static final int BLOCKS_PER_WINDOW = WINDOW_SIZE >> BLOCK_SHIFT;
+
+    // Terms in at least this many documents keep block and window bounds;
+    // rarer terms are cheaper to bound from their postings at query time
+    private static final int WINDOW_BOUND_MIN_DF = 512;
+
+    // Bounds on the impact table; rarer frequencies and lengths are computed per lookup
+    private static final int MAX_TABLE_FREQUENCY = 64;
+
+    private static final int MAX_TABLE_LENGTH = 2048;
+
+    // Pruning compares sums taken in a different order than the scores, so
+    // it leaves a little room for rounding
+    private static final float PRUNING_MARGIN = 0.99999f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "the", "of", "is", "in", "for", "with", "to", "on", "its", "it");
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // Same postings sorted by term, so prefix lookups are a subMap range
+    private final TreeMap<String, Postings> sortedTerms = new TreeMap<>();
+
+    // trigram -> terms containing it
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    private final Map<Long, Integer> ordinalByEvId = new HashMap<>();
+
+    private long[] evIds = new long[16];
+
+    private int[] lengths = new int[16];
+
+    private String[][] termsByOrdinal = new String[16][];
+
+    // Lowest EV id per window of ordinals, for breaking ties between windows
+    private long[] windowMinEvIds = new long[1];
+
+    private final BitSet live = new BitSet();
+
+    private int ordinals;
+
+    private int liveCount;
+
+    private long totalLength;
+
+    // Longest document and highest frequency indexed, which size the impact table
+    private int maxLength;
+
+    private int maxFrequency;
+
+    private Impacts impacts = new Impacts(0, 0, 0);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public void index(EV ev) {
+        Map<String, Integer> terms = analyze(ev);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(ev.getId());
+            addLocked(ev.getId(), terms);
+            compactIfNeeded();
+            refreshImpacts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long evId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(evId);
+            compactIfNeeded();
+            refreshImpacts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(List<EV> evs) {
+        List<Map<String, Integer>> analyzed = new ArrayList<>(evs.size());
+        for (EV ev : evs) {
+            analyzed.add(analyze(ev));
+        }
+
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+            for (int i = 0; i < evs.size(); i++) {
+                removeLocked(evs.get(i).getId());
+                addLocked(evs.get(i).getId(), analyzed.get(i));
+            }
+            refreshImpacts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns EV ids ordered by descending relevance, ties broken by id
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            QueryToken[] queryTokens = new QueryToken[tokens.size()];
+            for (int i = 0; i < queryTokens.length; i++) {
+                Map<String, Float> matches = expand(tokens.get(i));
+                QueryTerm[] terms = new QueryTerm[matches.size()];
+                int t = 0;
+                for (Map.Entry<String, Float> match : matches.entrySet()) {
+                    Postings termPostings = postings.get(match.getKey());
+                    int documentFrequency = termPostings.liveCount;
+                    float idf = (float) Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                    terms[t++] = new QueryTerm(termPostings, match.getValue() * idf * (float) (K1 + 1));
+                }
+                queryTokens[i] = new QueryToken(terms);
+            }
+
+            Scratch work = scratch.get();
+            int windows = (ordinals + WINDOW_SIZE - 1) >> WINDOW_SHIFT;
+            int blocks = windows * BLOCKS_PER_WINDOW;
+            work.reset(blocks, windows, queryTokens.length, limit);
+            for (int i = 0; i < queryTokens.length; i++) {
+                QueryToken token = queryTokens[i];
+                token.blockBounds = work.tokenBlockBounds[i];
+                token.windowBounds = work.tokenWindowBounds[i];
+                for (QueryTerm term : token.terms) {
+                    boundTerm(term, token.blockBounds, token.windowBounds);
+                }
+                for (int window = 0; window < windows; window++) {
+                    token.maxBound = Math.max(token.maxBound, token.windowBounds[window]);
+                }
+            }
+            // Tokens that can add the least go last, where they are the first to be pruned
+            Arrays.sort(queryTokens, (a, b) -> Float.compare(b.maxBound, a.maxBound));
+
+            // Tokens are summed in the same order here and when scoring, so a
+            // block's bound is never below the score of a document in it
+            for (QueryToken token : queryTokens) {
+                for (int block = 0; block < blocks; block++) {
+                    work.blockBounds[block] += token.blockBounds[block];
+                }
+            }
+            maxPerWindow(work.blockBounds, work.windowBounds, windows);
+
+            int candidates = work.orderWindows(windows);
+            for (int i = 0; i < candidates; i++) {
+                int window = (int) work.windowOrder[i];
+                float bound = work.windowBounds[window];
+                if (work.full()) {
+                    // Windows come best bound first, so none of the rest can do better
+                    if (bound < work.worstScore()) {
+                        break;
+                    }
+                    // A tie only wins on a lower EV id
+                    if (bound == work.worstScore() && windowMinEvIds[window] > work.worstEvId()) {
+                        continue;
+                    }
+                }
+                scoreWindow(window, queryTokens, work);
+            }
+            return work.results();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Index terms a query token matches, with the boost each match carries
+    private Map<String, Float> expand(String token) {
+        Map<String, Float> matches = new HashMap<>();
+        Postings exact = postings.get(token);
+        if (exact != null && exact.liveCount > 0) {
+            matches.put(token, 1.0f);
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Postings> entry : sortedTerms.subMap(token, token + Character.MAX_VALUE).entrySet()) {
+                if (matches.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                if (entry.getValue().liveCount > 0) {
+                    matches.putIfAbsent(entry.getKey(), PREFIX_MATCH_BOOST);
+                }
+            }
+        }
+        if (matches.isEmpty()) {
+            fuzzyMatches(token, matches);
+        }
+        return matches;
+    }
+
+    private void fuzzyMatches(String token, Map<String, Float> matches) {
+        Set<String> grams = trigramsOf(token);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            Set<String> terms = trigrams.get(gram);
+            if (terms != null) {
+                for (String term : terms) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Double>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            Postings termPostings = postings.get(entry.getKey());
+            if (termPostings == null || termPostings.liveCount == 0) {
+                continue;
+            }
+            // Padded terms of length n have n trigrams
+            int termGrams = entry.getKey().length();
+            double similarity = (double) entry.getValue() / (grams.size() + termGrams - entry.getValue());
+            if (similarity >= MIN_TRIGRAM_SIMILARITY) {
+                candidates.add(Map.entry(entry.getKey(), similarity));
+            }
+        }
+        candidates.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        for (int i = 0; i < candidates.size() && i < MAX_EXPANSIONS; i++) {
+            matches.put(candidates.get(i).getKey(), (float) (FUZZY_MATCH_BOOST * candidates.get(i).getValue()));
+        }
+    }
+
+    // A window's bound is the best bound among its blocks
+    private static void maxPerWindow(float[] blockBounds, float[] windowBounds, int windows) {
+        for (int window = 0; window < windows; window++) {
+            float max = 0;
+            for (int block = window * BLOCKS_PER_WINDOW; block < (window + 1) * BLOCKS_PER_WINDOW; block++) {
+                if (blockBounds[block] > max) {
+                    max = blockBounds[block];
+                }
+            }
+            windowBounds[window] = max;
+        }
+    }
+
+    // Raises each block's and each window's bound to the best score the
+    // term can reach in it
+    private void boundTerm(QueryTerm term, float[] blockBounds, float[] windowBounds) {
+        Postings termPostings = term.postings;
+        if (termPostings.windowOffsets != null) {
+            BlockMaxima maxima = termPostings.maxima(impacts, lengths);
+            for (int block = 0; block < maxima.blocks.length; block++) {
+                blockBounds[block] = Math.max(blockBounds[block], term.weight * maxima.blocks[block]);
+            }
+            for (int window = 0; window < maxima.windows.length; window++) {
+                windowBounds[window] = Math.max(windowBounds[window], term.weight * maxima.windows[window]);
+            }
+            return;
+        }
+        int[] docs = termPostings.docs;
+        int[] freqs = termPostings.freqs;
+        for (int i = 0; i < termPostings.size; i++) {
+            if (freqs[i] == 0) {
+                continue;
+            }
+            float score = term.weight * impacts.of(freqs[i], lengths[docs[i]]);
+            int block = docs[i] >> BLOCK_SHIFT;
+            blockBounds[block] = Math.max(blockBounds[block], score);
+            int window = docs[i] >> WINDOW_SHIFT;
+            windowBounds[window] = Math.max(windowBounds[window], score);
+        }
+    }
+
+    // Scores the window's documents token by token (MaxScore), skipping the
+    // blocks whose bound is below the current top results. Once the tokens
+    // left cannot lift an unseen document to the top results, they are only
+    // looked up for the documents seen so far that still can.
+    private void scoreWindow(int window, QueryToken[] queryTokens, Scratch work) {
+        int start = window << WINDOW_SHIFT;
+        float threshold = work.full() ? work.worstScore() * PRUNING_MARGIN : 0;
+        int liveBlocks = work.liveBlocks(window, threshold);
+        // What tokens i and later can add to a document, per block, and the
+        // most in any live block
+        float[] remaining = work.remainingBounds;
+        float[] blockRemaining = work.blockRemainingBounds;
+        int first = window * BLOCKS_PER_WINDOW;
+        Arrays.fill(blockRemaining, queryTokens.length * BLOCKS_PER_WINDOW, (queryTokens.length + 1) * BLOCKS_PER_WINDOW, 0);
+        remaining[queryTokens.length] = 0;
+        for (int i = queryTokens.length - 1; i >= 0; i--) {
+            float[] tokenBlockBounds = queryTokens[i].blockBounds;
+            remaining[i] = 0;
+            for (int b = 0; b < BLOCKS_PER_WINDOW; b++) {
+                float bound = blockRemaining[(i + 1) * BLOCKS_PER_WINDOW + b] + tokenBlockBounds[first + b];
+                blockRemaining[i * BLOCKS_PER_WINDOW + b] = bound;
+                if ((liveBlocks >>> b & 1) != 0 && bound > remaining[i]) {
+                    remaining[i] = bound;
+                }
+            }
+        }
+
+        boolean open = true;
+        for (int i = 0; i < queryTokens.length; i++) {
+            QueryTerm[] terms = queryTokens[i].terms;
+            if (open && remaining[i] >= threshold) {
+                for (QueryTerm term : terms) {
+                    int[] docs = term.postings.docs;
+                    int[] freqs = term.postings.freqs;
+                    int size = term.postings.size;
+                    int p = term.postings.windowStart(window);
+                    for (int blocks = liveBlocks; blocks != 0 && p < size; blocks &= blocks - 1) {
+                        int blockStart = start + (Integer.numberOfTrailingZeros(blocks) << BLOCK_SHIFT);
+                        int blockEnd = blockStart + (1 << BLOCK_SHIFT);
+                        while (p < size && docs[p] < blockStart) {
+                            p++;
+                        }
+                        for (; p < size && docs[p] < blockEnd; p++) {
+                            // Tombstoned documents have their frequencies zeroed
+                            if (freqs[p] != 0) {
+                                // A token counts once per document: keep its best matching term
+                                work.offerToken(docs[p] - start, term.weight * impacts.of(freqs[p], lengths[docs[p]]));
+                            }
+                        }
+                    }
+                }
+                work.mergeToken();
+                continue;
+            }
+            if (open) {
+                open = false;
+                work.sortCandidates();
+            }
+            if (work.pruneCandidates(blockRemaining, i * BLOCKS_PER_WINDOW, threshold) == 0) {
+                break;
+            }
+            // Few candidates are usually left, so each term skips ahead to them
+            int[] candidates = work.candidateSlots;
+            int count = work.candidateCount;
+            for (QueryTerm term : terms) {
+                int[] docs = term.postings.docs;
+                int[] freqs = term.postings.freqs;
+                int p = term.postings.windowStart(window);
+                for (int c = 0; c < count; c++) {
+                    int doc = start + candidates[c];
+                    p = term.postings.advance(p, doc);
+                    if (p == term.postings.size) {
+                        break;
+                    }
+                    if (docs[p] == doc && freqs[p] != 0) {
+                        work.offerToken(candidates[c], term.weight * impacts.of(freqs[p], lengths[doc]));
+                    }
+                }
+            }
+            work.mergeToken();
+        }
+        work.collectWindow(start, evIds);
+    }
+
+    private void addLocked(Long evId, Map<String, Integer> terms) {
+        int ordinal = ordinals++;
+        if (ordinal == evIds.length) {
+            int capacity = evIds.length * 2;
+            evIds = Arrays.copyOf(evIds, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            termsByOrdinal = Arrays.copyOf(termsByOrdinal, capacity);
+        }
+        int window = ordinal >> WINDOW_SHIFT;
+        if (window == windowMinEvIds.length) {
+            windowMinEvIds = Arrays.copyOf(windowMinEvIds, windowMinEvIds.length * 2);
+        }
+        windowMinEvIds[window] = (ordinal & (WINDOW_SIZE - 1)) == 0 ? evId : Math.min(windowMinEvIds[window], evId);
+
+        int length = 0;
+        for (int frequency : terms.values()) {
+            length += frequency;
+        }
+        lengths[ordinal] = length;
+        maxLength = Math.max(maxLength, length);
+
+        String[] docTerms = new String[terms.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            Postings termPostings = postings.get(term.getKey());
+            if (termPostings == null) {
+                termPostings = new Postings();
+                postings.put(term.getKey(), termPostings);
+                sortedTerms.put(term.getKey(), termPostings);
+                for (String gram : trigramsOf(term.getKey())) {
+                    trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(term.getKey());
+                }
+            }
+            termPostings.add(ordinal, term.getValue());
+            maxFrequency = Math.max(maxFrequency, term.getValue());
+            if (termPostings.windowOffsets != null) {
+                termPostings.trackWindow(termPostings.size - 1);
+            } else if (termPostings.liveCount >= WINDOW_BOUND_MIN_DF) {
+                termPostings.trackWindows();
+            }
+            docTerms[i++] = term.getKey();
+        }
+
+        evIds[ordinal] = evId;
+        termsByOrdinal[ordinal] = docTerms;
+        live.set(ordinal);
+        ordinalByEvId.put(evId, ordinal);
+        liveCount++;
+        totalLength += length;
+    }
+
+    private void removeLocked(Long evId) {
+        Integer ordinal = ordinalByEvId.remove(evId);
+        if (ordinal == null) {
+            return;
+        }
+        live.clear(ordinal);
+        liveCount--;
+        totalLength -= lengths[ordinal];
+        for (String term : termsByOrdinal[ordinal]) {
+            postings.get(term).remove(ordinal);
+        }
+        termsByOrdinal[ordinal] = null;
+    }
+
+    // Every write can move the average document length, and with it every impact
+    private void refreshImpacts() {
+        double lengthScale = liveCount > 0 ? K1 * B * liveCount / totalLength : 0;
+        int frequencies = Math.min(maxFrequency, MAX_TABLE_FREQUENCY) + 1;
+        int tableLengths = Math.min(maxLength, MAX_TABLE_LENGTH) + 1;
+        if (lengthScale != impacts.lengthScale || frequencies > impacts.frequencies || tableLengths > impacts.lengths) {
+            impacts = new Impacts(lengthScale, frequencies, tableLengths);
+        }
+    }
+
+    // Rewrites the index from live documents once tombstones dominate
+    private void compactIfNeeded() {
+        if (ordinals < 64 || liveCount * 2 > ordinals) {
+            return;
+        }
+        long[] oldIds = evIds;
+        String[][] oldTerms = termsByOrdinal;
+        Map<String, Postings> oldPostings = new HashMap<>(postings);
+        BitSet oldLive = (BitSet) live.clone();
+
+        // Recover each live document's weighted term frequencies from its postings
+        List<Map<String, Integer>> documents = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int ordinal = oldLive.nextSetBit(0); ordinal >= 0; ordinal = oldLive.nextSetBit(ordinal + 1)) {
+            Map<String, Integer> terms = new HashMap<>();
+            for (String term : oldTerms[ordinal]) {
+                terms.put(term, oldPostings.get(term).frequencyOf(ordinal));
+            }
+            documents.add(terms);
+            ids.add(oldIds[ordinal]);
+        }
+
+        clearLocked();
+        for (int i = 0; i < ids.size(); i++) {
+            addLocked(ids.get(i), documents.get(i));
+        }
+    }
+
+    private void clearLocked() {
+        postings.clear();
+        sortedTerms.clear();
+        trigrams.clear();
+        ordinalByEvId.clear();
+        evIds = new long[16];
+        lengths = new int[16];
+        termsByOrdinal = new String[16][];
+        windowMinEvIds = new long[1];
+        live.clear();
+        ordinals = 0;
+        liveCount = 0;
+        totalLength = 0;
+        maxLength = 0;
+        maxFrequency = 0;
+    }
+
+    private static Map<String, Integer> analyze(EV ev) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, ev.getModel(), MODEL_WEIGHT);
+        addTerms(terms, ev.getBrand(), BRAND_WEIGHT);
+        addTerms(terms, ev.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    // Lower-cased runs of letters and digits, without stop words
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Trigrams of the term padded with boundary markers, so short terms still produce grams
+    static Set<String> trigramsOf(String term) {
+        String padded = "^" + term + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Ordinals in ascending order with their weighted term frequencies
+    private static final class Postings {
+
+        private int[] docs = new int[4];
+
+        private int[] freqs = new int[4];
+
+        private int size;
+
+        private int liveCount;
+
+        // Index of the first posting in each window up to the last one with
+        // postings; null while the term is rare
+        private int[] windowOffsets;
+
+        private int offsetWindows;
+
+        // Best impacts for the current impact table, computed by the first
+        // query that needs them and dropped whenever the postings change
+        private volatile BlockMaxima maxima;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = frequency;
+            size++;
+            liveCount++;
+            maxima = null;
+        }
+
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0 && freqs[index] != 0) {
+                freqs[index] = 0;
+                liveCount--;
+                maxima = null;
+            }
+        }
+    
+        int frequencyOf(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            return index >= 0 ? freqs[index] : 0;
+        }
+
+        // First posting at or after the window's first ordinal
+        int windowStart(int window) {
+            if (windowOffsets != null) {
+                return window < offsetWindows ? windowOffsets[window] : size;
+            }
+            int index = Arrays.binarySearch(docs, 0, size, window << WINDOW_SHIFT);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        // First posting at or after from whose ordinal is at least doc,
+        // galloping so that short skips stay cheap
+        int advance(int from, int doc) {
+            int low = from;
+            int step = 1;
+            while (low + step < size && docs[low + step] < doc) {
+                low += step;
+                step <<= 1;
+            }
+            if (low == size || docs[low] >= doc) {
+                return low;
+            }
+            int index = Arrays.binarySearch(docs, low + 1, Math.min(low + step, size - 1) + 1, doc);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        void trackWindows() {
+            windowOffsets = new int[(docs[size - 1] >> WINDOW_SHIFT) + 1];
+            for (int i = 0; i < size; i++) {
+                trackWindow(i);
+            }
+        }
+
+        // Records where the posting's window starts; postings arrive in ordinal order
+        void trackWindow(int index) {
+            int window = docs[index] >> WINDOW_SHIFT;
+            if (window >= windowOffsets.length) {
+                windowOffsets = Arrays.copyOf(windowOffsets, Math.max(window + 1, windowOffsets.length * 2));
+            }
+            // Windows without postings start where the next one does
+            while (offsetWindows <= window) {
+                windowOffsets[offsetWindows++] = index;
+            }
+        }
+
+        // Concurrent readers may both compute them; either result is the same
+        BlockMaxima maxima(Impacts impacts, int[] lengths) {
+            BlockMaxima current = maxima;
+            if (current == null || current.impacts != impacts) {
+                current = new BlockMaxima(impacts, docs, freqs, size, lengths);
+                maxima = current;
+            }
+            return current;
+        }
+    }
+
+    // A term's highest impact in each block and each window of ordinals
+    private static final class BlockMaxima {
+
+        private final Impacts impacts;
+
+        private final float[] blocks;
+
+        private final float[] windows;
+
+        BlockMaxima(Impacts impacts, int[] docs, int[] freqs, int size, int[] lengths) {
+            this.impacts = impacts;
+            this.blocks = new float[(docs[size - 1] >> BLOCK_SHIFT) + 1];
+            this.windows = new float[(docs[size - 1] >> WINDOW_SHIFT) + 1];
+            for (int i = 0; i < size; i++) {
+                if (freqs[i] == 0) {
+                    continue;
+                }
+                float impact = impacts.of(freqs[i], lengths[docs[i]]);
+                int block = docs[i] >> BLOCK_SHIFT;
+                blocks[block] = Math.max(blocks[block], impact);
+                int window = docs[i] >> WINDOW_SHIFT;
+                windows[window] = Math.max(windows[window], impact);
+            }
+        }
+    }
+
+    // BM25 term frequency saturation, without the term's weight, tabulated by
+    // frequency and document length for one average length. Bounds and
+    // scores read the same values, so a bound is never below a score.
+    private static final class Impacts {
+
+        private final double lengthScale;
+
+        private final int frequencies;
+
+        private final int lengths;
+
+        private final float[] values;
+
+        Impacts(double lengthScale, int frequencies, int lengths) {
+            this.lengthScale = lengthScale;
+            this.frequencies = frequencies;
+            this.lengths = lengths;
+            this.values = new float[frequencies * lengths];
+            for (int frequency = 1; frequency < frequencies; frequency++) {
+                for (int length = 0; length < lengths; length++) {
+                    values[frequency * lengths + length] = compute(frequency, length);
+                }
+            }
+        }
+
+        float of(int frequency, int length) {
+            if (frequency < frequencies && length < lengths) {
+                return values[frequency * lengths + length];
+            }
+            return compute(frequency, length);
+        }
+
+        private float compute(int frequency, int length) {
+            return (float) (frequency / (frequency + K1 * (1 - B) + lengthScale * length));
+        }
+    }
+
+    // A term a query token matched, with its BM25 weight for this query
+    private static final class QueryTerm {
+
+        private final Postings postings;
+
+        private final float weight;
+
+        QueryTerm(Postings postings, float weight) {
+            this.postings = postings;
+            this.weight = weight;
+        }
+    }
+
+    // The terms one query token matched, with the most the token can add to
+    // a document's score in each block and each window
+    private static final class QueryToken {
+
+        private final QueryTerm[] terms;
+
+        private float[] blockBounds;
+
+        private float[] windowBounds;
+
+        private float maxBound;
+
+        QueryToken(QueryTerm[] terms) {
+            this.terms = terms;
+        }
+    }
+
+    // Per-thread block and window bounds, score accumulators and result
+    // heap, reused across queries
+    private static final class Scratch {
+
+        private float[] blockBounds = new float[0];
+
+        private float[] windowBounds = new float[0];
+
+        private float[][] tokenBlockBounds = new float[0][];
+
+        private float[][] tokenWindowBounds = new float[0][];
+
+        private float[] remainingBounds = new float[1];
+
+        private float[] blockRemainingBounds = new float[BLOCKS_PER_WINDOW];
+
+        // Window slots the current token matched, and those matched by any token so far
+        private final int[] tokenSlots = new int[WINDOW_SIZE];
+
+        private int tokenCount;
+
+        private final int[] candidateSlots = new int[WINDOW_SIZE];
+
+        private int candidateCount;
+
+        // Windows to score, packed as (descending bound, window) for a primitive sort
+        private long[] windowOrder = new long[0];
+
+        private final float[] tokenScores = new float[WINDOW_SIZE];
+
+        private final float[] totalScores = new float[WINDOW_SIZE];
+
+        // Min-heap of the best documents so far, the worst one at the root
+        private long[] heapEvIds = new long[0];
+
+        private float[] heapScores = new float[0];
+
+        private int heapSize;
+
+        private int limit;
+
+        void reset(int blocks, int windows, int tokens, int limit) {
+            if (windowBounds.length < windows) {
+                int capacity = Math.max(windows, windowBounds.length * 2);
+                blockBounds = new float[capacity * BLOCKS_PER_WINDOW];
+                windowBounds = new float[capacity];
+                windowOrder = new long[capacity];
+                tokenBlockBounds = new float[0][];
+                tokenWindowBounds = new float[0][];
+            }
+            if (tokenWindowBounds.length < tokens) {
+                tokenBlockBounds = Arrays.copyOf(tokenBlockBounds, tokens);
+                tokenWindowBounds = Arrays.copyOf(tokenWindowBounds, tokens);
+                remainingBounds = new float[tokens + 1];
+                blockRemainingBounds = new float[(tokens + 1) * BLOCKS_PER_WINDOW];
+            }
+            for (int i = 0; i < tokens; i++) {
+                if (tokenWindowBounds[i] == null) {
+                    tokenBlockBounds[i] = new float[blockBounds.length];
+                    tokenWindowBounds[i] = new float[windowBounds.length];
+                } else {
+                    Arrays.fill(tokenBlockBounds[i], 0, blocks, 0);
+                    Arrays.fill(tokenWindowBounds[i], 0, windows, 0);
+                }
+            }
+            if (heapScores.length < limit) {
+                heapEvIds = new long[limit];
+                heapScores = new float[limit];
+            }
+            Arrays.fill(blockBounds, 0, blocks, 0);
+            Arrays.fill(windowBounds, 0, windows, 0);
+            heapSize = 0;
+            this.limit = limit;
+        }
+
+        // Bit per block of the window that can hold a document reaching the threshold
+        int liveBlocks(int window, float threshold) {
+            int live = 0;
+            int first = window * BLOCKS_PER_WINDOW;
+            for (int b = 0; b < BLOCKS_PER_WINDOW; b++) {
+                float bound = blockBounds[first + b];
+                if (bound > 0 && bound >= threshold) {
+                    live |= 1 << b;
+                }
+            }
+            return live;
+        }
+
+        // Orders the windows that can hold a match by descending bound; returns their number
+        int orderWindows(int windows) {
+            int count = 0;
+            for (int window = 0; window < windows; window++) {
+                if (windowBounds[window] > 0) {
+                    // Bits of positive floats order like the floats themselves
+                    long descending = Integer.MAX_VALUE - Float.floatToIntBits(windowBounds[window]);
+                    windowOrder[count++] = descending << 32 | window;
+                }
+            }
+            Arrays.sort(windowOrder, 0, count);
+            return count;
+        }
+
+        void offerToken(int slot, float score) {
+            float current = tokenScores[slot];
+            if (current == 0) {
+                tokenSlots[tokenCount++] = slot;
+                tokenScores[slot] = score;
+            } else if (score > current) {
+                tokenScores[slot] = score;
+            }
+        }
+
+        // Adds the token's scores to the window totals; documents seen for
+        // the first time become candidates
+        void mergeToken() {
+            for (int i = 0; i < tokenCount; i++) {
+                int slot = tokenSlots[i];
+                if (totalScores[slot] == 0) {
+                    candidateSlots[candidateCount++] = slot;
+                }
+                totalScores[slot] += tokenScores[slot];
+                tokenScores[slot] = 0;
+            }
+            tokenCount = 0;
+        }
+
+        void sortCandidates() {
+            Arrays.sort(candidateSlots, 0, candidateCount);
+        }
+
+        // Drops candidates that cannot reach the threshold with what the
+        // remaining tokens add at most in their block; returns the number left
+        int pruneCandidates(float[] blockRemaining, int offset, float threshold) {
+            int kept = 0;
+            for (int c = 0; c < candidateCount; c++) {
+                int slot = candidateSlots[c];
+                if (totalScores[slot] + blockRemaining[offset + (slot >> BLOCK_SHIFT)] >= threshold) {
+                    candidateSlots[kept++] = slot;
+                } else {
+                    totalScores[slot] = 0;
+                }
+            }
+            candidateCount = kept;
+            return kept;
+        }
+
+        // Offers the window's candidates to the heap and resets the accumulators
+        void collectWindow(int start, long[] evIds) {
+            for (int c = 0; c < candidateCount; c++) {
+                int slot = candidateSlots[c];
+                float score = totalScores[slot];
+                totalScores[slot] = 0;
+                int doc = start + slot;
+                if (heapSize < limit) {
+                    heapEvIds[heapSize] = evIds[doc];
+                    heapScores[heapSize] = score;
+                    siftUp(heapSize++);
+                } else if (better(score, evIds[doc], heapScores[0], heapEvIds[0])) {
+                    heapEvIds[0] = evIds[doc];
+                    heapScores[0] = score;
+                    siftDown(heapSize);
+                }
+            }
+            candidateCount = 0;
+        }
+
+        boolean full() {
+            return heapSize == limit;
+        }
+
+        float worstScore() {
+            return heapScores[0];
+        }
+
+        long worstEvId() {
+            return heapEvIds[0];
+        }
+
+        // Empties the heap into EV ids, best first
+        List<Long> results() {
+            Long[] ordered = new Long[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                ordered[i] = heapEvIds[0];
+                swap(0, i);
+                siftDown(i);
+            }
+            heapSize = 0;
+            return Arrays.asList(ordered);
+        }
+
+        // Higher score first, then lower EV id
+        private static boolean better(float scoreA, long evIdA, float scoreB, long evIdB) {
+            if (scoreA != scoreB) {
+                return scoreA > scoreB;
+            }
+            return evIdA < evIdB;
+        }
+
+        private boolean better(int a, int b) {
+            return better(heapScores[a], heapEvIds[a], heapScores[b], heapEvIds[b]);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!better(parent, index)) {
+                    break;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int size) {
+            int index = 0;
+            while (true) {
+                int left = 2 * index + 1;
+                if (left >= size) {
+                    break;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && better(left, right)) {
+                    worst = right;
+                }
+                if (!better(index, worst)) {
+                    break;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long evId = heapEvIds[a];
+            heapEvIds[a] = heapEvIds[b];
+            heapEvIds[b] = evId;
+            float score = heapScores[a];
+            heapScores[a] = heapScores[b];
+            heapScores[b] = score;
+        }
+    }
+}
@@ -2,12 +2,22 @@ package com.evcommerce.backend.service;
 
 import com.evcommerce.backend.model.EV;
 import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.EVSummary;
 import com.evcommerce.backend.repository.EVRepository;
+import com.evcommerce.backend.repository.EVRepositoryCustom.CatalogSort;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class EVService {
@@ -15,16 +25,33 @@ public class EVService {
     @Autowired
     private EVRepository evRepository;
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    // Catalog reads are served from this snapshot; writes rebuild and swap it
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    
+    private final Object snapshotLock = new Object();
+    
+    // Full-text index over available EVs; built from the snapshot on first search
+    private final EVSearchIndex searchIndex = new EVSearchIndex();
+    
+    private volatile boolean searchIndexBuilt;
+    
     public List<EV> getAllEVs() {
-        return evRepository.findByAvailableTrue();
+        return getSnapshot().getAvailable();
     }
     
     public Optional<EV> getEVById(Long id) {
-        return evRepository.findById(id);
+        return getSnapshot().getById(id);
     }
     
     public EV createEV(EV ev) {
-        return evRepository.save(ev);
+        EV saved = save(ev);
+        refreshSnapshot();
+        updateSearchIndex(saved.getId());
+        return saved;
     }
     
     public EV updateEV(Long id, EV evDetails) {
@@ -42,41 +69,339 @@ public class EVService {
         ev.setCategory(evDetails.getCategory());
         ev.setAvailable(evDetails.isAvailable());
         
-        return evRepository.save(ev);
+        EV saved = save(ev);
+        refreshSnapshot();
+        updateSearchIndex(saved.getId());
+        return saved;
+    }
+    
+    // A brand and model can only be listed once (uk_ev_brand_model)
+    private EV save(EV ev) {
+        try {
+            return evRepository.save(ev);
+        } catch (DataIntegrityViolationException e) {
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && EV.BRAND_MODEL_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName())) {
+                throw new RuntimeException("Vehicle already exists");
+            }
+            throw e;
+        }
     }
     
     public void deleteEV(Long id) {
         EV ev = evRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("EV not found"));
         evRepository.delete(ev);
+        refreshSnapshot();
+        updateSearchIndex(id);
     }
     
     public List<EV> getEVsByBrand(String brand) {
-        return evRepository.findByBrand(brand);
+        return getSnapshot().getByBrand(brand);
     }
     
     public List<EV> getEVsByCategory(EVCategory category) {
-        return evRepository.findByCategory(category);
+        return getSnapshot().getByCategory(category);
     }
     
     public List<EV> getEVsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return evRepository.findByPriceBetween(minPrice, maxPrice);
+        return getSnapshot().getByPriceRange(minPrice, maxPrice);
     }
     
     public List<EV> getEVsByMinRange(Integer minRange) {
-        return evRepository.findByRangeKmGreaterThanEqual(minRange);
+        return getSnapshot().getByMinRange(minRange);
     }
     
     public List<EV> getEVsWithFilters(String brand, EVCategory category, 
                                      BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
-        return evRepository.findAvailableEVsWithFilters(brand, category, minPrice, maxPrice, minRange);
+        return getSnapshot().filter(brand, category, minPrice, maxPrice, minRange);
+    }
+    
+    // Paged forms of the listings above, in the same shape as getEVPage. Each
+    // listing keeps its snapshot order (id, or price / range then id), so the
+    // cursor carries the same keys as the matching getEVPage sort.
+    public Map<String, Object> getAvailablePage(String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().getAvailable(), CatalogSort.ID, cursor, size, fields);
+    }
+
+    public Map<String, Object> getBrandPage(String brand, String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().getByBrand(brand), CatalogSort.ID, cursor, size, fields);
+    }
+
+    public Map<String, Object> getCategoryPage(EVCategory category, String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().getByCategory(category), CatalogSort.ID, cursor, size, fields);
+    }
+
+    public Map<String, Object> getPriceRangePage(BigDecimal minPrice, BigDecimal maxPrice,
+                                                 String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().getByPriceRange(minPrice, maxPrice), CatalogSort.PRICE, cursor, size, fields);
+    }
+
+    public Map<String, Object> getMinRangePage(Integer minRange, String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().getByMinRange(minRange), CatalogSort.RANGE_KM, cursor, size, fields);
+    }
+
+    public Map<String, Object> getFilteredPage(String brand, EVCategory category,
+                                               BigDecimal minPrice, BigDecimal maxPrice, Integer minRange,
+                                               String cursor, Integer size, String fields) {
+        return listPage(getSnapshot().filter(brand, category, minPrice, maxPrice, minRange),
+            CatalogSort.ID, cursor, size, fields);
+    }
+
+    public Map<String, Object> getFacets(String brand, EVCategory category,
+                                         BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        return getSnapshot().facets(brand, category, minPrice, maxPrice, minRange);
     }
     
     public List<String> getAllBrands() {
-        return evRepository.findDistinctBrands();
+        return getSnapshot().getAvailableBrands();
     }
     
+    // Vehicles in the requested order; unknown ids are skipped
     public List<EV> compareEVs(List<Long> evIds) {
-        return evRepository.findAllById(evIds);
+        CatalogSnapshot current = getSnapshot();
+        List<EV> result = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(evIds)) {
+            current.getById(id).ifPresent(result::add);
+        }
+        return result;
+    }
+    
+    public List<EV> searchEVs(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        int max = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        ensureSearchIndex();
+        CatalogSnapshot current = getSnapshot();
+        List<EV> results = new ArrayList<>();
+        for (Long id : searchIndex.search(query, max)) {
+            current.getById(id).ifPresent(results::add);
+        }
+        return results;
+    }
+    
+    private void ensureSearchIndex() {
+        if (!searchIndexBuilt) {
+            synchronized (snapshotLock) {
+                if (!searchIndexBuilt) {
+                    searchIndex.rebuild(getSnapshot().getAvailable());
+                    searchIndexBuilt = true;
+                }
+            }
+        }
+    }
+    
+    // Applies a single EV change to the search index, using the copy from the
+    // freshly published snapshot; unavailable or deleted EVs are dropped
+    private void updateSearchIndex(Long evId) {
+        synchronized (snapshotLock) {
+            if (!searchIndexBuilt) {
+                return;
+            }
+            Optional<EV> ev = getSnapshot().getById(evId);
+            if (ev.isPresent() && ev.get().isAvailable()) {
+                searchIndex.index(ev.get());
+            } else {
+                searchIndex.remove(evId);
+            }
+        }
+    }
+    
+    // Keyset-paginated listing of available EVs. The cursor carries the sort
+    // key and id of the last row, so every page costs one index range scan.
+    public Map<String, Object> getEVPage(String sortProperty, String direction, String cursor, Integer size, String fields) {
+        CatalogSort sort = CatalogSort.fromProperty(sortProperty);
+        boolean descending = "desc".equalsIgnoreCase(direction);
+        if (!descending && !"asc".equalsIgnoreCase(direction)) {
+            throw new IllegalArgumentException("Unsupported direction: " + direction);
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = PageCursor.decode(cursor, 2);
+            try {
+                afterId = Long.valueOf(keys[1]);
+                afterValue = parseSortValue(sort, keys[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        // Fetch one extra row to learn whether another page exists
+        Map<String, Object> page = new HashMap<>();
+        String nextCursor = null;
+        if (isSummaryView(fields)) {
+            List<EVSummary> rows = evRepository.findAvailableSummaryPage(sort, descending, afterValue, afterId, pageSize + 1);
+            List<EVSummary> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+            if (rows.size() > pageSize) {
+                EVSummary last = items.get(items.size() - 1);
+                nextCursor = encodeCursor(sort, last.price(), last.rangeKm(), last.id());
+            }
+            page.put("items", items);
+            page.put("size", items.size());
+        } else {
+            List<EV> rows = evRepository.findAvailablePage(sort, descending, afterValue, afterId, pageSize + 1);
+            List<EV> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+            if (rows.size() > pageSize) {
+                EV last = items.get(items.size() - 1);
+                nextCursor = encodeCursor(sort, last.getPrice(), last.getRangeKm(), last.getId());
+            }
+            page.put("items", items);
+            page.put("size", items.size());
+        }
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+
+    // One page of a snapshot listing ordered by (sort key, id). The cursor is
+    // found by binary search, so a page costs the same at any depth.
+    private Map<String, Object> listPage(List<EV> rows, CatalogSort sort, String cursor, Integer size, String fields) {
+        boolean summary = isSummaryView(fields);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        int from = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = PageCursor.decode(cursor, 2);
+            Object afterValue;
+            Long afterId;
+            try {
+                afterId = Long.valueOf(keys[1]);
+                afterValue = parseSortValue(sort, keys[0]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int to = rows.size();
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (compareKey(sort, rows.get(mid), afterValue, afterId) <= 0) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+        }
+
+        int end = Math.min(from + pageSize, rows.size());
+        List<EV> items = rows.subList(from, end);
+        String nextCursor = null;
+        if (end < rows.size()) {
+            EV last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(sort, last.getPrice(), last.getRangeKm(), last.getId());
+        }
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", summary ? getSnapshot().summarize(items) : items);
+        page.put("size", items.size());
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+
+    private static int compareKey(CatalogSort sort, EV ev, Object value, Long id) {
+        int order;
+        switch (sort) {
+            case PRICE:
+                order = ev.getPrice().compareTo((BigDecimal) value);
+                break;
+            case RANGE_KM:
+                order = ev.getRangeKm().compareTo((Integer) value);
+                break;
+            default:
+                order = 0;
+        }
+        return order != 0 ? order : ev.getId().compareTo(id);
+    }
+
+    // fields=summary selects the EVSummary view; no value or fields=full keeps full entities
+    public boolean isSummaryView(String fields) {
+        if (fields == null || fields.isEmpty() || "full".equalsIgnoreCase(fields)) {
+            return false;
+        }
+        if ("summary".equalsIgnoreCase(fields)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported fields: " + fields);
+    }
+    
+    public List<EVSummary> getAllEVSummaries() {
+        return getSnapshot().getAvailableSummaries();
+    }
+    
+    public List<EVSummary> toSummaries(List<EV> evs) {
+        return getSnapshot().summarize(evs);
+    }
+    
+    private Object parseSortValue(CatalogSort sort, String value) {
+        switch (sort) {
+            case PRICE:
+                return new BigDecimal(value);
+            case RANGE_KM:
+                return Integer.valueOf(value);
+            default:
+                return null;
+        }
+    }
+    
+    private String encodeCursor(CatalogSort sort, BigDecimal price, Integer rangeKm, Long id) {
+        switch (sort) {
+            case PRICE:
+                return PageCursor.encode(price.toPlainString(), id);
+            case RANGE_KM:
+                return PageCursor.encode(rangeKm, id);
+            default:
+                return PageCursor.encode("", id);
+        }
+    }
+    
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (snapshotLock) {
+                current = snapshot.get();
+                if (current == null) {
+                    current = buildSnapshot(nextVersion(null));
+                    snapshot.set(current);
+                }
+            }
+        }
+        return current;
+    }
+    
+    // Reloads the catalog and publishes it as a new snapshot. Rebuilds are
+    // serialized so a slower rebuild can never overwrite a newer one.
+    public void refreshSnapshot() {
+        synchronized (snapshotLock) {
+            snapshot.set(buildSnapshot(nextVersion(snapshot.get())));
+        }
+    }
+    
+    // After bulk changes: republish the snapshot and let the search index
+    // rebuild from it on the next query instead of applying per-row updates
+    public void reloadCatalog() {
+        synchronized (snapshotLock) {
+            refreshSnapshot();
+            searchIndexBuilt = false;
+        }
+    }
+    
+    // Monotonically increasing catalog version, bumped by every write. It is
+    // seeded from the clock so versions keep increasing across restarts.
+    public long getCatalogVersion() {
+        return getSnapshot().getVersion();
+    }
+    
+    public long getCatalogLastModified() {
+        return getSnapshot().getBuiltAt();
+    }
+    
+    private long nextVersion(CatalogSnapshot current) {
+        long now = System.currentTimeMillis();
+        return current != null ? Math.max(current.getVersion() + 1, now) : now;
+    }
+    
+    private CatalogSnapshot buildSnapshot(long version) {
+        return new CatalogSnapshot(version, evRepository.findAll(Sort.by("id")));
     }
 } 
\ No newline at end of file
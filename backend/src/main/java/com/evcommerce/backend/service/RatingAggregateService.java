@@ -0,0 +1,348 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EVRatingSummary;
+import com.evcommerce.backend.repository.EVRatingSummaryRepository;
+import com.evcommerce.backend.repository.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-EV rating aggregates (count per star, sum, average). The
+// ev_rating_summaries table is updated with deltas in the same transaction as
+// the review change; the in-memory counters follow once that transaction
+// commits. Reads never touch the reviews table. A reconciliation job
+// periodically recounts the raw reviews and repairs any drift.
+@Service
+public class RatingAggregateService {
+
+    @Autowired
+    private EVRatingSummaryRepository summaryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ConcurrentHashMap<Long, RatingCounters> counters = new ConcurrentHashMap<>();
+
+    private final List<RatingListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Told after an EV's in-memory counters change, on the thread that changed
+    // them; listeners read the new counts back through getCounts
+    public interface RatingListener {
+        void ratingsChanged(Long evId);
+    }
+
+    // Runs before the web server starts, so no review write can race the
+    // initial load: the table is verified and every row adopted into memory
+    @PostConstruct
+    public void initialize() {
+        reconcile();
+    }
+
+    // Records a review change for an EV: a new review has no old rating and a
+    // deleted one has no new rating. Must run inside the writing transaction.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChange(Long evId, Integer oldRating, Integer newRating) {
+        long[] deltas = new long[5];
+        if (oldRating != null) {
+            deltas[checkRating(oldRating) - 1]--;
+        }
+        if (newRating != null) {
+            deltas[checkRating(newRating) - 1]++;
+        }
+        recordDeltas(evId, deltas);
+    }
+
+    // Records per-star count changes for an EV (index 0 is 1 star) as a single
+    // delta, e.g. for many reviews removed in one batch
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeltas(Long evId, long[] starDeltas) {
+        // Copied because the commit callback applies it later
+        long[] deltas = starDeltas.clone();
+        long sumDelta = 0;
+        long countDelta = 0;
+        for (int i = 0; i < 5; i++) {
+            sumDelta += (i + 1) * deltas[i];
+            countDelta += deltas[i];
+        }
+        if (Arrays.stream(deltas).allMatch(delta -> delta == 0)) {
+            return;
+        }
+
+        // Marked in flight before the row is written so reconciliation leaves
+        // these counters alone until the transaction has finished
+        RatingCounters evCounters = counters.computeIfAbsent(evId, k -> new RatingCounters());
+        evCounters.inFlight.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    evCounters.add(deltas);
+                }
+                evCounters.version.incrementAndGet();
+                evCounters.inFlight.decrementAndGet();
+                if (status == STATUS_COMMITTED) {
+                    notifyListeners(evId);
+                }
+            }
+        });
+
+        summaryRepository.applyDelta(evId, deltas[0], deltas[1], deltas[2], deltas[3], deltas[4], sumDelta, countDelta);
+    }
+
+    public Map<String, Object> getStats(Long evId) {
+        return statsOf(getCounts(evId));
+    }
+
+    // Review count per star, index 0 holding 1-star reviews
+    public long[] getCounts(Long evId) {
+        RatingCounters evCounters = counters.get(evId);
+        return evCounters != null ? evCounters.snapshot() : new long[5];
+    }
+
+    public Set<Long> getTrackedEvIds() {
+        return new HashSet<>(counters.keySet());
+    }
+
+    public void addListener(RatingListener listener) {
+        listeners.add(listener);
+    }
+
+    // Stats for several EVs keyed by id in request order. EVs with counters
+    // are answered from memory; the rest share one grouped query.
+    public Map<Long, Map<String, Object>> getStats(Collection<Long> evIds) {
+        Map<Long, Map<String, Object>> stats = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long evId : evIds) {
+            RatingCounters evCounters = counters.get(evId);
+            if (evCounters != null) {
+                stats.put(evId, statsOf(evCounters.snapshot()));
+            } else {
+                stats.put(evId, null);
+                misses.add(evId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return stats;
+        }
+
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : reviewRepository.getRatingCountsByEvIds(misses)) {
+            int rating = ((Number) row[1]).intValue();
+            counts.computeIfAbsent((Long) row[0], k -> new long[5])[rating - 1] = ((Number) row[2]).longValue();
+        }
+        for (Long evId : misses) {
+            stats.put(evId, statsOf(counts.getOrDefault(evId, new long[5])));
+        }
+        return stats;
+    }
+
+    private static Map<String, Object> statsOf(long[] counts) {
+        Map<Integer, Long> distribution = new HashMap<>();
+        long reviewCount = 0;
+        long ratingSum = 0;
+        for (int rating = 1; rating <= 5; rating++) {
+            long count = counts[rating - 1];
+            distribution.put(rating, count);
+            reviewCount += count;
+            ratingSum += rating * count;
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("averageRating", reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0);
+        stats.put("reviewCount", reviewCount);
+        stats.put("ratingDistribution", distribution);
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${reviews.aggregates.reconcile-interval-ms:900000}",
+               initialDelayString = "${reviews.aggregates.reconcile-interval-ms:900000}")
+    public void scheduledReconcile() {
+        Map<String, Object> result = reconcile();
+        if ((int) result.get("tableRepairs") > 0 || (int) result.get("memoryRepairs") > 0) {
+            System.out.println("Rating aggregates reconciled: " + result);
+        }
+    }
+
+    // Verifies the summary table against a full recount of the reviews table
+    // and the in-memory counters against the summary table
+    public Map<String, Object> reconcile() {
+        // Writer activity is captured first; counters that see a write during
+        // the check are skipped and picked up again on the next run
+        Map<Long, Long> versions = new HashMap<>();
+        counters.forEach((evId, evCounters) -> {
+            if (evCounters.inFlight.get() == 0) {
+                versions.put(evId, evCounters.version.get());
+            }
+        });
+
+        Map<Long, long[]> expected = new HashMap<>();
+        for (Object[] row : reviewRepository.getRatingCountsByEv()) {
+            int rating = ((Number) row[1]).intValue();
+            expected.computeIfAbsent((Long) row[0], k -> new long[5])[rating - 1] = ((Number) row[2]).longValue();
+        }
+        Map<Long, long[]> table = new HashMap<>();
+        for (EVRatingSummary summary : summaryRepository.findAll()) {
+            table.put(summary.getEvId(), countsOf(summary));
+        }
+
+        Set<Long> evIds = new HashSet<>(expected.keySet());
+        evIds.addAll(table.keySet());
+        int tableRepairs = 0;
+        for (Long evId : evIds) {
+            long[] stored = table.getOrDefault(evId, new long[5]);
+            if (!Arrays.equals(stored, expected.getOrDefault(evId, new long[5]))) {
+                table.put(evId, repairRow(evId));
+                tableRepairs++;
+            }
+        }
+
+        int memoryRepairs = 0;
+        for (Map.Entry<Long, Long> captured : versions.entrySet()) {
+            RatingCounters evCounters = counters.get(captured.getKey());
+            long[] stored = table.getOrDefault(captured.getKey(), new long[5]);
+            long[] current = evCounters.snapshot();
+            if (Arrays.equals(current, stored)) {
+                continue;
+            }
+            if (evCounters.inFlight.get() == 0 && evCounters.version.get() == captured.getValue()) {
+                long[] correction = new long[5];
+                for (int i = 0; i < 5; i++) {
+                    correction[i] = stored[i] - current[i];
+                }
+                evCounters.add(correction);
+                notifyListeners(captured.getKey());
+                memoryRepairs++;
+            }
+        }
+        for (Long evId : table.keySet()) {
+            if (!counters.containsKey(evId)) {
+                // Not seen by this process yet (startup, or written elsewhere); adopt the stored counts
+                RatingCounters fresh = new RatingCounters();
+                if (counters.putIfAbsent(evId, fresh) == null) {
+                    fresh.add(table.get(evId));
+                    notifyListeners(evId);
+                    memoryRepairs++;
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("checked", evIds.size());
+        result.put("tableRepairs", tableRepairs);
+        result.put("memoryRepairs", memoryRepairs);
+        return result;
+    }
+
+    // Recounts one EV under the summary row lock. Writers upsert the same row,
+    // so they either commit before the recount or apply their delta after it.
+    private long[] repairRow(Long evId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status -> {
+            summaryRepository.ensureRow(evId);
+            EVRatingSummary summary = summaryRepository.lockByEvId(evId)
+                .orElseThrow(() -> new RuntimeException("Rating summary not found"));
+
+            long[] counts = new long[5];
+            for (Object[] row : reviewRepository.getRatingCountsByEvId(evId)) {
+                counts[((Number) row[0]).intValue() - 1] = ((Number) row[1]).longValue();
+            }
+            summary.setCount1(counts[0]);
+            summary.setCount2(counts[1]);
+            summary.setCount3(counts[2]);
+            summary.setCount4(counts[3]);
+            summary.setCount5(counts[4]);
+            long sum = 0;
+            long total = 0;
+            for (int i = 0; i < 5; i++) {
+                sum += (i + 1) * counts[i];
+                total += counts[i];
+            }
+            summary.setRatingSum(sum);
+            summary.setReviewCount(total);
+            summary.setUpdatedAt(LocalDateTime.now());
+            summaryRepository.save(summary);
+            return counts;
+        });
+    }
+
+    private void notifyListeners(Long evId) {
+        for (RatingListener listener : listeners) {
+            try {
+                listener.ratingsChanged(evId);
+            } catch (RuntimeException e) {
+                // A failing listener must not break the review write that triggered it
+                System.out.println("Rating listener failed for EV " + evId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static long[] countsOf(EVRatingSummary summary) {
+        long[] counts = new long[5];
+        for (int rating = 1; rating <= 5; rating++) {
+            counts[rating - 1] = summary.getCount(rating);
+        }
+        return counts;
+    }
+
+    private static int checkRating(Integer rating) {
+        if (rating < 1 || rating > 5) {
+            throw new RuntimeException("Rating must be between 1 and 5");
+        }
+        return rating;
+    }
+
+    // Striped per-star counters so concurrent reviews of one EV never contend
+    // on a single lock or word
+    private static final class RatingCounters {
+
+        private final LongAdder[] stars = {
+            new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()
+        };
+
+        // Writes started but not yet completed, and completed writes so far
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicLong version = new AtomicLong();
+
+        void add(long[] deltas) {
+            for (int i = 0; i < 5; i++) {
+                if (deltas[i] != 0) {
+                    stars[i].add(deltas[i]);
+                }
+            }
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[5];
+            for (int i = 0; i < 5; i++) {
+                counts[i] = stars[i].sum();
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.Review;
+import com.evcommerce.backend.model.User;
+import com.evcommerce.backend.repository.ReviewRepository;
+import com.evcommerce.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moderation queue for admins: pages through unverified reviews and
+// verifies or rejects whole batches with one set-based statement each. The
+// admin is checked once per call instead of once per review.
+@Service
+public class ReviewModerationService {
+
+    static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RatingAggregateService ratingAggregateService;
+
+    // Pending reviews oldest first, so the queue is worked in arrival order
+    public Map<String, Object> getPendingPage(Long adminUserId, String cursor, Integer size) {
+        requireAdmin(adminUserId);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = PageCursor.decode(cursor, 2);
+            try {
+                afterCreatedAt = LocalDateTime.parse(keys[0]);
+                afterId = Long.valueOf(keys[1]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<Review> rows = reviewRepository.findPendingPage(afterCreatedAt, afterId, pageSize + 1);
+        List<Review> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            Review last = items.get(items.size() - 1);
+            nextCursor = PageCursor.encode(last.getCreatedAt(), last.getId());
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("size", items.size());
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+
+    @Transactional
+    public Map<String, Object> verify(Long adminUserId, List<Long> reviewIds) {
+        long start = System.currentTimeMillis();
+        requireAdmin(adminUserId);
+        Set<Long> ids = batchIds(reviewIds);
+
+        int verified = reviewRepository.verifyAll(ids, LocalDateTime.now());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requested", ids.size());
+        result.put("verified", verified);
+        result.put("elapsedMillis", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    // Rejected reviews are deleted. Their ratings are locked and read first
+    // so the rating aggregates get one combined delta per EV. Only pending
+    // reviews can be rejected: verified ids in the batch are neither counted
+    // nor deleted, since the lock and the delete skip the same rows.
+    @Transactional
+    public Map<String, Object> reject(Long adminUserId, List<Long> reviewIds) {
+        long start = System.currentTimeMillis();
+        requireAdmin(adminUserId);
+        Set<Long> ids = batchIds(reviewIds);
+
+        Map<Long, long[]> removedByEv = new HashMap<>();
+        for (Object[] row : reviewRepository.lockRatingsByIds(ids)) {
+            long[] deltas = removedByEv.computeIfAbsent(((Number) row[0]).longValue(), k -> new long[5]);
+            deltas[((Number) row[1]).intValue() - 1]--;
+        }
+        int rejected = reviewRepository.deleteAllByIds(ids);
+        removedByEv.forEach(ratingAggregateService::recordDeltas);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requested", ids.size());
+        result.put("rejected", rejected);
+        result.put("elapsedMillis", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private void requireAdmin(Long adminUserId) {
+        User admin = userRepository.findById(adminUserId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!admin.getRole().equals(User.UserRole.ADMIN)) {
+            throw new RuntimeException("Only admins can moderate reviews");
+        }
+    }
+
+    private static Set<Long> batchIds(List<Long> reviewIds) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (reviewIds != null) {
+            for (Long id : reviewIds) {
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one review id is required");
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " reviews per batch");
+        }
+        return ids;
+    }
+}
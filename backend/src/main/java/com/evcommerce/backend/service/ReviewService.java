@@ -2,20 +2,37 @@ package com.evcommerce.backend.service;
 
 import com.evcommerce.backend.model.Review;
 import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
 import com.evcommerce.backend.model.User;
 import com.evcommerce.backend.repository.ReviewRepository;
 import com.evcommerce.backend.repository.EVRepository;
 import com.evcommerce.backend.repository.UserRepository;
+import com.evcommerce.backend.repository.ReviewRepositoryCustom.ReviewFeedSort;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
 
 @Service
 public class ReviewService {
     
+    private static final int DEFAULT_FEED_SIZE = 20;
+    
+    private static final int MAX_FEED_SIZE = 100;
+    
+    static final int MAX_STATS_BATCH = 100;
+    
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+    
     @Autowired
     private ReviewRepository reviewRepository;
     
@@ -25,6 +42,18 @@ public class ReviewService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private EVService evService;
+    
+    @Autowired
+    private RatingAggregateService ratingAggregateService;
+    
+    @Autowired
+    private TopReviewService topReviewService;
+    
+    @Autowired
+    private ReviewSpamDetector reviewSpamDetector;
+    
     public List<Review> getReviewsByEv(Long evId) {
         EV ev = evRepository.findById(evId)
             .orElseThrow(() -> new RuntimeException("EV not found"));
@@ -43,28 +72,133 @@ public class ReviewService {
         return reviewRepository.findByUserOrderByCreatedAtDesc(user);
     }
     
-    public Review createReview(Long userId, Long evId, Review reviewDetails) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        EV ev = evRepository.findById(evId)
-            .orElseThrow(() -> new RuntimeException("EV not found"));
+    // Keyset-paged review feed for an EV, newest first, by rating or by
+    // helpful votes; the cursor carries the sort keys of the last review on
+    // the previous page
+    public Map<String, Object> getReviewFeedByEv(Long evId, String sortParam, boolean verifiedOnly,
+                                                 String cursor, Integer size) {
+        ReviewFeedSort sort = ReviewFeedSort.fromParam(sortParam);
+        if (evService.getEVById(evId).isEmpty()) {
+            throw new RuntimeException("EV not found");
+        }
+        int pageSize = feedSize(size);
         
-        // Check if user already reviewed this EV
-        Optional<Review> existingReview = reviewRepository.findByUserAndEv(user, ev);
-        if (existingReview.isPresent()) {
-            throw new RuntimeException("You have already reviewed this vehicle");
+        Long afterKey = null;
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            boolean leadingKey = sort != ReviewFeedSort.NEWEST;
+            String[] keys = PageCursor.decode(cursor, leadingKey ? 3 : 2);
+            int offset = leadingKey ? 1 : 0;
+            try {
+                afterKey = leadingKey ? Long.valueOf(keys[0]) : null;
+                afterCreatedAt = LocalDateTime.parse(keys[offset]);
+                afterId = Long.valueOf(keys[offset + 1]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
         }
         
+        // Fetch one extra row to learn whether another page exists
+        List<Review> rows = reviewRepository.findEvFeedPage(evId, verifiedOnly, sort,
+                afterKey, afterCreatedAt, afterId, pageSize + 1);
+        return feedPage(rows, pageSize, sort);
+    }
+    
+    public Map<String, Object> getReviewFeedByUser(Long userId, String cursor, Integer size) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        int pageSize = feedSize(size);
+        
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] keys = PageCursor.decode(cursor, 2);
+            try {
+                afterCreatedAt = LocalDateTime.parse(keys[0]);
+                afterId = Long.valueOf(keys[1]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        List<Review> rows = reviewRepository.findUserFeedPage(userId, afterCreatedAt, afterId, pageSize + 1);
+        return feedPage(rows, pageSize, ReviewFeedSort.NEWEST);
+    }
+    
+    private int feedSize(Integer size) {
+        return size == null ? DEFAULT_FEED_SIZE : Math.max(1, Math.min(size, MAX_FEED_SIZE));
+    }
+    
+    private Map<String, Object> feedPage(List<Review> rows, int pageSize, ReviewFeedSort sort) {
+        List<Review> items = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            Review last = items.get(items.size() - 1);
+            switch (sort) {
+                case RATING:
+                    nextCursor = PageCursor.encode(last.getRating(), last.getCreatedAt(), last.getId());
+                    break;
+                case HELPFUL:
+                    nextCursor = PageCursor.encode(last.getHelpfulCount(), last.getCreatedAt(), last.getId());
+                    break;
+                default:
+                    nextCursor = PageCursor.encode(last.getCreatedAt(), last.getId());
+            }
+        }
+        
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("size", items.size());
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+    
+    // The insert is the only round trip: the EV comes from the catalog
+    // snapshot, the user is an unloaded reference, and duplicates and unknown
+    // users are reported by the database constraints. Near-copies of existing
+    // reviews are saved flagged for moderation.
+    @Transactional
+    public Review createReview(Long userId, Long evId, Review reviewDetails) {
+        EV ev = evService.getEVById(evId)
+            .orElseThrow(() -> new RuntimeException("EV not found"));
+        
         Review review = new Review();
-        review.setUser(user);
+        review.setUser(userRepository.getReferenceById(userId));
         review.setEv(ev);
         review.setTitle(reviewDetails.getTitle());
         review.setContent(reviewDetails.getContent());
         review.setRating(reviewDetails.getRating());
         
-        return reviewRepository.save(review);
+        ReviewSpamDetector.Screening screening = reviewSpamDetector.screen(review.getTitle(), review.getContent());
+        review.setFlagged(screening.isNearDuplicate());
+        
+        Review saved;
+        try {
+            saved = reviewRepository.save(review);
+        } catch (DataIntegrityViolationException e) {
+            throw translateInsertViolation(e);
+        }
+        ratingAggregateService.recordChange(evId, null, saved.getRating());
+        reviewSpamDetector.indexOnCommit(saved.getId(), screening);
+        return saved;
     }
     
+    private RuntimeException translateInsertViolation(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation) {
+            if (Review.USER_EV_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName())) {
+                return new RuntimeException("You have already reviewed this vehicle");
+            }
+            // The EV was found above, so a foreign key failure is the user
+            if (FOREIGN_KEY_VIOLATION.equals(violation.getSQLState())) {
+                return new RuntimeException("User not found");
+            }
+        }
+        return e;
+    }
+    
+    @Transactional
     public Review updateReview(Long reviewId, Long userId, Review reviewDetails) {
         Review review = reviewRepository.findById(reviewId)
             .orElseThrow(() -> new RuntimeException("Review not found"));
@@ -74,13 +208,17 @@ public class ReviewService {
             throw new RuntimeException("You can only update your own reviews");
         }
         
+        Integer oldRating = review.getRating();
         review.setTitle(reviewDetails.getTitle());
         review.setContent(reviewDetails.getContent());
         review.setRating(reviewDetails.getRating());
         
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        ratingAggregateService.recordChange(review.getEv().getId(), oldRating, saved.getRating());
+        return saved;
     }
     
+    @Transactional
     public void deleteReview(Long reviewId, Long userId) {
         Review review = reviewRepository.findById(reviewId)
             .orElseThrow(() -> new RuntimeException("Review not found"));
@@ -94,34 +232,43 @@ public class ReviewService {
         }
         
         reviewRepository.delete(review);
+        ratingAggregateService.recordChange(review.getEv().getId(), review.getRating(), null);
     }
     
+    // Served from the incrementally maintained rating aggregates; the vehicle
+    // lookup is answered by the in-memory catalog snapshot
     public Map<String, Object> getReviewStatsByEv(Long evId) {
-        EV ev = evRepository.findById(evId)
-            .orElseThrow(() -> new RuntimeException("EV not found"));
-        
-        Double averageRating = reviewRepository.getAverageRatingByEv(ev);
-        Long reviewCount = reviewRepository.getReviewCountByEv(ev);
-        
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("averageRating", averageRating != null ? averageRating : 0.0);
-        stats.put("reviewCount", reviewCount != null ? reviewCount : 0L);
-        stats.put("ratingDistribution", getRatingDistribution(ev));
-        
-        return stats;
+        if (evService.getEVById(evId).isEmpty()) {
+            throw new RuntimeException("EV not found");
+        }
+        return ratingAggregateService.getStats(evId);
     }
     
-    private Map<Integer, Long> getRatingDistribution(EV ev) {
-        Map<Integer, Long> distribution = new HashMap<>();
-        for (int i = 1; i <= 5; i++) {
-            List<Review> reviews = reviewRepository.findByEvAndRating(ev, i);
-            distribution.put(i, (long) reviews.size());
+    // Stats for a catalog page of EVs in one call; unknown ids are left out
+    public Map<Long, Map<String, Object>> getReviewStatsByEvs(List<Long> evIds) {
+        if (evIds == null || evIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one EV id is required");
+        }
+        // The cap counts distinct ids as submitted, before any lookup
+        Set<Long> requested = new LinkedHashSet<>(evIds);
+        requested.remove(null);
+        if (requested.size() > MAX_STATS_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_STATS_BATCH + " EVs per request");
+        }
+        Set<Long> known = new LinkedHashSet<>();
+        for (Long evId : requested) {
+            if (evService.getEVById(evId).isPresent()) {
+                known.add(evId);
+            }
+        }
+        if (known.isEmpty()) {
+            return new HashMap<>();
         }
-        return distribution;
+        return ratingAggregateService.getStats(known);
     }
     
-    public List<Review> getTopReviews(Integer minRating) {
-        return reviewRepository.findReviewsByMinRating(minRating);
+    public List<Review> getTopReviews(Integer minRating, String brand, EVCategory category, Integer limit) {
+        return topReviewService.getTopReviews(minRating, brand, category, limit);
     }
     
     public Review verifyReview(Long reviewId, Long adminUserId) {
@@ -0,0 +1,390 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.repository.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Flags copy-pasted reviews. Each review's title and content are reduced to
+// a MinHash signature over character shingles; locality-sensitive hashing
+// splits the signature into bands so that near-duplicates share at least one
+// band with high probability, and only reviews sharing a band are compared.
+//
+// Memory stays small enough for millions of reviews: per review the index
+// keeps one (bandHash, ordinal) long per band in sorted arrays, plus a b-bit
+// sketch (the low byte of each MinHash value) used to estimate similarity.
+// Deleted reviews stay in the index until the next rebuild, so copies of
+// rejected spam are still caught.
+@Service
+public class ReviewSpamDetector {
+
+    static final int SHINGLE_LENGTH = 5;
+
+    static final int NUM_HASHES = 32;
+
+    static final int BANDS = 8;
+
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+
+    // New entries are buffered unsorted and merged into the sorted bands in bulk
+    private static final int MAX_PENDING = 4096;
+
+    // Bounds the work for one query when a band bucket is very large
+    private static final int MAX_CANDIDATES_PER_BAND = 256;
+
+    private static final int REBUILD_CHUNK_SIZE = 50_000;
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+            MULTIPLIERS[i] = mix(seed) | 1;
+        }
+    }
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Estimated Jaccard similarity of shingle sets at which a review is flagged
+    @Value("${reviews.spam.similarity-threshold:0.8}")
+    private double similarityThreshold = 0.8;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Review id and sketch per ordinal
+    private long[] reviewIds = new long[1024];
+
+    private byte[] sketches = new byte[1024 * NUM_HASHES];
+
+    private int size;
+
+    // Per band: (bandHash << 32 | ordinal) entries, sorted, and recent unsorted ones
+    private long[][] sorted = new long[BANDS][0];
+
+    private final long[][] pending = new long[BANDS][MAX_PENDING];
+
+    private int pendingCount;
+
+    // Outcome of screening one review, kept so the review can be indexed
+    // after it has been saved
+    public record Screening(long[] minHashes, Long nearDuplicateOf) {
+
+        public boolean isNearDuplicate() {
+            return nearDuplicateOf != null;
+        }
+    }
+
+    // Runs before the web server accepts requests, so no review can be
+    // created while the index is being rebuilt
+    @PostConstruct
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        int indexed = transaction.execute(status -> {
+            try (Stream<Object[]> rows = reviewRepository.streamReviewTexts()) {
+                return rebuild(rows);
+            }
+        });
+        System.out.println("Review spam index rebuilt: " + indexed + " reviews in "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Signatures are computed in parallel a chunk at a time, so only one
+    // chunk of review text is held in memory
+    int rebuild(Stream<Object[]> rows) {
+        long[] ids = new long[1024];
+        byte[] newSketches = new byte[1024 * NUM_HASHES];
+        int[] bandHashes = new int[1024 * BANDS];
+        int count = 0;
+
+        List<Object[]> chunk = new ArrayList<>(REBUILD_CHUNK_SIZE);
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext() || !chunk.isEmpty()) {
+            if (iterator.hasNext() && chunk.size() < REBUILD_CHUNK_SIZE) {
+                chunk.add(iterator.next());
+                continue;
+            }
+            int base = count;
+            count += chunk.size();
+            if (count > ids.length) {
+                int capacity = Math.max(count, ids.length * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                newSketches = Arrays.copyOf(newSketches, capacity * NUM_HASHES);
+                bandHashes = Arrays.copyOf(bandHashes, capacity * BANDS);
+            }
+            long[] chunkIds = ids;
+            byte[] chunkSketches = newSketches;
+            int[] chunkBands = bandHashes;
+            List<Object[]> current = chunk;
+            IntStream.range(0, current.size()).parallel().forEach(i -> {
+                Object[] row = current.get(i);
+                long[] minHashes = minHashes((String) row[1], (String) row[2]);
+                int ordinal = base + i;
+                chunkIds[ordinal] = ((Number) row[0]).longValue();
+                writeSketch(minHashes, chunkSketches, ordinal);
+                int[] bands = bandHashes(minHashes);
+                System.arraycopy(bands, 0, chunkBands, ordinal * BANDS, BANDS);
+            });
+            chunk = new ArrayList<>(REBUILD_CHUNK_SIZE);
+        }
+
+        int total = count;
+        int[] allBands = bandHashes;
+        long[][] newSorted = new long[BANDS][];
+        IntStream.range(0, BANDS).parallel().forEach(band -> {
+            long[] entries = new long[total];
+            for (int ordinal = 0; ordinal < total; ordinal++) {
+                entries[ordinal] = entry(allBands[ordinal * BANDS + band], ordinal);
+            }
+            Arrays.parallelSort(entries);
+            newSorted[band] = entries;
+        });
+
+        lock.writeLock().lock();
+        try {
+            reviewIds = ids;
+            sketches = newSketches;
+            size = total;
+            sorted = newSorted;
+            pendingCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return total;
+    }
+
+    public Screening screen(String title, String content) {
+        long[] minHashes = minHashes(title, content);
+        return new Screening(minHashes, findNearDuplicate(minHashes));
+    }
+
+    // Adds a saved review to the index once its transaction commits; without
+    // a transaction it is added straight away
+    public void indexOnCommit(Long reviewId, Screening screening) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(reviewId, screening.minHashes());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(reviewId, screening.minHashes());
+            }
+        });
+    }
+
+    public int getIndexedCount() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Long findNearDuplicate(long[] minHashes) {
+        int[] bands = bandHashes(minHashes);
+        byte[] sketch = new byte[NUM_HASHES];
+        writeSketch(minHashes, sketch, 0);
+
+        lock.readLock().lock();
+        try {
+            for (int band = 0; band < BANDS; band++) {
+                long[] entries = sorted[band];
+                int examined = 0;
+                for (int i = lowerBound(entries, entry(bands[band], 0));
+                     i < entries.length && bandHash(entries[i]) == bands[band] && examined < MAX_CANDIDATES_PER_BAND;
+                     i++, examined++) {
+                    int ordinal = (int) entries[i];
+                    if (similarity(sketch, ordinal) >= similarityThreshold) {
+                        return reviewIds[ordinal];
+                    }
+                }
+                long[] recent = pending[band];
+                for (int i = 0; i < pendingCount; i++) {
+                    if (bandHash(recent[i]) == bands[band] && similarity(sketch, (int) recent[i]) >= similarityThreshold) {
+                        return reviewIds[(int) recent[i]];
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(Long reviewId, long[] minHashes) {
+        int[] bands = bandHashes(minHashes);
+        lock.writeLock().lock();
+        try {
+            if (size == reviewIds.length) {
+                reviewIds = Arrays.copyOf(reviewIds, size * 2);
+                sketches = Arrays.copyOf(sketches, size * 2 * NUM_HASHES);
+            }
+            int ordinal = size++;
+            reviewIds[ordinal] = reviewId;
+            writeSketch(minHashes, sketches, ordinal);
+            for (int band = 0; band < BANDS; band++) {
+                pending[band][pendingCount] = entry(bands[band], ordinal);
+            }
+            if (++pendingCount == MAX_PENDING) {
+                mergePending();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void mergePending() {
+        for (int band = 0; band < BANDS; band++) {
+            long[] recent = Arrays.copyOf(pending[band], pendingCount);
+            Arrays.sort(recent);
+            long[] existing = sorted[band];
+            long[] merged = new long[existing.length + recent.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < existing.length && j < recent.length) {
+                merged[k++] = existing[i] <= recent[j] ? existing[i++] : recent[j++];
+            }
+            while (i < existing.length) {
+                merged[k++] = existing[i++];
+            }
+            while (j < recent.length) {
+                merged[k++] = recent[j++];
+            }
+            sorted[band] = merged;
+        }
+        pendingCount = 0;
+    }
+
+    // b-bit MinHash estimate: two random bytes agree with probability 1/256,
+    // which is removed from the observed agreement rate
+    private double similarity(byte[] sketch, int ordinal) {
+        int offset = ordinal * NUM_HASHES;
+        int matches = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (sketch[i] == sketches[offset + i]) {
+                matches++;
+            }
+        }
+        double chance = 1.0 / 256;
+        return ((double) matches / NUM_HASHES - chance) / (1 - chance);
+    }
+
+    static long[] minHashes(String title, String content) {
+        String text = normalize((title != null ? title : "") + " " + (content != null ? content : ""));
+        long[] minHashes = new long[NUM_HASHES];
+        Arrays.fill(minHashes, Long.MAX_VALUE);
+        int shingles = Math.max(1, text.length() - SHINGLE_LENGTH + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            int end = Math.min(text.length(), start + SHINGLE_LENGTH);
+            for (int i = start; i < end; i++) {
+                shingle = shingle * 31 + text.charAt(i);
+            }
+            // One full mix per shingle; each hash function is then a cheap
+            // bijection of it (xor, odd multiply, xorshift)
+            long base = mix(shingle);
+            for (int h = 0; h < NUM_HASHES; h++) {
+                long value = (base ^ SEEDS[h]) * MULTIPLIERS[h];
+                value ^= value >>> 29;
+                if (value < minHashes[h]) {
+                    minHashes[h] = value;
+                }
+            }
+        }
+        return minHashes;
+    }
+
+    // Lower case letters and digits with single spaces, so formatting and
+    // punctuation changes do not hide a copy
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+
+    private static int[] bandHashes(long[] minHashes) {
+        int[] bands = new int[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                hash = mix(hash * 31 + minHashes[band * ROWS_PER_BAND + row]);
+            }
+            bands[band] = (int) (hash ^ (hash >>> 32));
+        }
+        return bands;
+    }
+
+    private static void writeSketch(long[] minHashes, byte[] target, int ordinal) {
+        int offset = ordinal * NUM_HASHES;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            target[offset + i] = (byte) minHashes[i];
+        }
+    }
+
+    private static long entry(int bandHash, int ordinal) {
+        return ((long) bandHash << 32) | ordinal;
+    }
+
+    private static int bandHash(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int lowerBound(long[] entries, long key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,248 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.ReviewVote;
+import com.evcommerce.backend.repository.ReviewVoteRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Helpful / unhelpful votes on reviews. The vote row is written at once (the
+// unique constraint keeps one vote per user), but the review's totals are not:
+// committed votes are added to striped per-review counters and a scheduled
+// flush applies the accumulated deltas in one batched update. A popular
+// review therefore takes one row update per flush instead of one per vote.
+@Service
+public class ReviewVoteService {
+
+    static final int FLUSH_BATCH_SIZE = 500;
+
+    static final String FLUSH_SQL =
+        "UPDATE reviews SET helpful_count = helpful_count + ?, unhelpful_count = unhelpful_count + ? WHERE id = ?";
+
+    @Autowired
+    private ReviewVoteRepository voteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Committed votes not yet written to the reviews table
+    private final ConcurrentHashMap<Long, VoteCounters> pending = new ConcurrentHashMap<>();
+
+    // Totals can only drift if the process died with unflushed votes; the
+    // vote rows are the source of truth and are recounted before serving
+    @PostConstruct
+    public void initialize() {
+        Integer repaired = new TransactionTemplate(transactionManager).execute(status -> voteRepository.repairCounts());
+        if (repaired != null && repaired > 0) {
+            System.out.println("Repaired helpfulness counts of " + repaired + " reviews");
+        }
+    }
+
+    // Records the user's vote. Voting again the same way changes nothing and
+    // voting the other way switches the vote. The returned totals include
+    // votes that are not flushed yet.
+    @Transactional
+    public Map<String, Object> vote(Long reviewId, Long userId, boolean helpful) {
+        long helpfulDelta = 0;
+        long unhelpfulDelta = 0;
+        try {
+            if (voteRepository.insertIfAbsent(reviewId, userId, helpful) == 1) {
+                helpfulDelta = helpful ? 1 : 0;
+                unhelpfulDelta = helpful ? 0 : 1;
+            } else if (voteRepository.switchVote(reviewId, userId, helpful) == 1) {
+                helpfulDelta = helpful ? 1 : -1;
+                unhelpfulDelta = -helpfulDelta;
+            }
+        } catch (DataIntegrityViolationException e) {
+            throw translateVoteViolation(e);
+        }
+
+        List<Object[]> stored = voteRepository.getStoredCounts(reviewId);
+        if (stored.isEmpty()) {
+            throw new RuntimeException("Review not found");
+        }
+        long[] unflushed = getPendingCounts(reviewId);
+        countOnCommit(reviewId, helpfulDelta, unhelpfulDelta);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reviewId", reviewId);
+        result.put("helpful", helpful);
+        result.put("helpfulCount", ((Number) stored.get(0)[0]).longValue() + unflushed[0] + helpfulDelta);
+        result.put("unhelpfulCount", ((Number) stored.get(0)[1]).longValue() + unflushed[1] + unhelpfulDelta);
+        return result;
+    }
+
+    // A deleted account takes its vote rows with it (ON DELETE CASCADE), so
+    // its votes are taken back from the totals. Called in the deleting
+    // transaction; the deltas count once it commits.
+    @Transactional
+    public int retractVotesOf(Long userId) {
+        List<Object[]> votes = voteRepository.lockVotesByUser(userId);
+        for (Object[] vote : votes) {
+            boolean helpful = (Boolean) vote[1];
+            countOnCommit(((Number) vote[0]).longValue(), helpful ? -1 : 0, helpful ? 0 : -1);
+        }
+        return votes.size();
+    }
+
+    // Unflushed [helpful, unhelpful] deltas of a review
+    public long[] getPendingCounts(Long reviewId) {
+        VoteCounters counters = pending.get(reviewId);
+        return counters != null ? new long[] {counters.helpful.sum(), counters.unhelpful.sum()} : new long[2];
+    }
+
+    // Writes all accumulated deltas in one transaction, in review id order so
+    // concurrent flushes from several instances lock rows in the same order.
+    // If the write fails the deltas are put back for the next run.
+    @Scheduled(fixedDelayString = "${reviews.votes.flush-interval-ms:2000}",
+               initialDelayString = "${reviews.votes.flush-interval-ms:2000}")
+    public synchronized int flush() {
+        TreeMap<Long, long[]> deltas = new TreeMap<>();
+        for (Map.Entry<Long, VoteCounters> entry : pending.entrySet()) {
+            VoteCounters counters = entry.getValue();
+            if (!drain(deltas, entry.getKey(), counters)) {
+                // Idle since the last run: retire the counters. A voter that
+                // still adds to them settles with this final drain in add().
+                counters.retired = true;
+                pending.remove(entry.getKey(), counters);
+                synchronized (counters) {
+                    drain(deltas, entry.getKey(), counters);
+                    counters.drained = true;
+                }
+            }
+        }
+        deltas.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((reviewId, delta) -> rows.add(new Object[] {delta[0], delta[1], reviewId}));
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (int from = 0; from < rows.size(); from += FLUSH_BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, rows.subList(from, Math.min(rows.size(), from + FLUSH_BATCH_SIZE)));
+                }
+            });
+        } catch (RuntimeException e) {
+            deltas.forEach((reviewId, delta) -> add(reviewId, delta[0], delta[1]));
+            System.out.println("Review vote flush failed, retrying next run: " + e.getMessage());
+            return 0;
+        }
+        return rows.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void countOnCommit(Long reviewId, long helpfulDelta, long unhelpfulDelta) {
+        if (helpfulDelta == 0 && unhelpfulDelta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(reviewId, helpfulDelta, unhelpfulDelta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(reviewId, helpfulDelta, unhelpfulDelta);
+            }
+        });
+    }
+
+    // Lock-free except when the counters were retired by a concurrent flush.
+    // Seeing the flag unset after the add means the final drain still comes,
+    // so the add is counted. Otherwise the add is taken back (final drain not
+    // run yet) or everything left behind after the final drain is moved, and
+    // the delta goes to live counters instead.
+    private void add(Long reviewId, long helpfulDelta, long unhelpfulDelta) {
+        while (helpfulDelta != 0 || unhelpfulDelta != 0) {
+            VoteCounters counters = pending.get(reviewId);
+            if (counters == null) {
+                counters = pending.computeIfAbsent(reviewId, k -> new VoteCounters());
+            }
+            counters.add(helpfulDelta, unhelpfulDelta);
+            if (!counters.retired) {
+                return;
+            }
+            synchronized (counters) {
+                if (!counters.drained) {
+                    counters.add(-helpfulDelta, -unhelpfulDelta);
+                } else {
+                    helpfulDelta = counters.helpful.sumThenReset();
+                    unhelpfulDelta = counters.unhelpful.sumThenReset();
+                }
+            }
+        }
+    }
+
+    // Moves the counters' values into deltas; false if there was nothing to move
+    private static boolean drain(Map<Long, long[]> deltas, Long reviewId, VoteCounters counters) {
+        long helpful = counters.helpful.sumThenReset();
+        long unhelpful = counters.unhelpful.sumThenReset();
+        if (helpful == 0 && unhelpful == 0) {
+            return false;
+        }
+        long[] delta = deltas.computeIfAbsent(reviewId, k -> new long[2]);
+        delta[0] += helpful;
+        delta[1] += unhelpful;
+        return true;
+    }
+
+    private RuntimeException translateVoteViolation(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException violation) {
+            if (ReviewVote.REVIEW_FOREIGN_KEY.equalsIgnoreCase(violation.getConstraintName())) {
+                return new RuntimeException("Review not found");
+            }
+            if (ReviewVote.USER_FOREIGN_KEY.equalsIgnoreCase(violation.getConstraintName())) {
+                return new RuntimeException("User not found");
+            }
+        }
+        return e;
+    }
+
+    private static final class VoteCounters {
+
+        private final LongAdder helpful = new LongAdder();
+
+        private final LongAdder unhelpful = new LongAdder();
+
+        // Set by the flush before its final drain, once removed from pending
+        private volatile boolean retired;
+
+        // Guarded by the counters' monitor
+        private boolean drained;
+
+        void add(long helpfulDelta, long unhelpfulDelta) {
+            if (helpfulDelta != 0) {
+                helpful.add(helpfulDelta);
+            }
+            if (unhelpfulDelta != 0) {
+                unhelpful.add(unhelpfulDelta);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.Review;
+import com.evcommerce.backend.repository.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bounded "top reviews" lists for the homepage and brand/category pages. Each
+// (minRating, brand, category) scope keeps its newest MAX_TOP_REVIEWS matches
+// in memory; a background job reloads them, so requests are served from the
+// cache and only the first request for a new scope waits on a query.
+@Service
+public class TopReviewService {
+
+    static final int MAX_TOP_REVIEWS = 50;
+
+    static final int DEFAULT_TOP_REVIEWS = 10;
+
+    // The homepage scope, loaded at startup
+    private static final int DEFAULT_MIN_RATING = 4;
+
+    private static final Scope HOMEPAGE_SCOPE = new Scope(DEFAULT_MIN_RATING, null, null);
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private EVService evService;
+
+    // Scopes nobody asked for within this window stop being refreshed; the
+    // homepage scope is always kept warm
+    @Value("${reviews.top.idle-expiry-ms:600000}")
+    private long idleExpiryMillis = 600_000;
+
+    private final ConcurrentHashMap<Scope, Entry> entries = new ConcurrentHashMap<>();
+
+    // Loads run on one background thread, outside any request's persistence
+    // context, so the cached entities are detached and safe to share
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "top-reviews-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void warmUp() {
+        entries.computeIfAbsent(HOMEPAGE_SCOPE, this::newEntry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    public List<Review> getTopReviews(Integer minRating, String brand, EVCategory category, Integer limit) {
+        if (minRating == null || minRating < 1 || minRating > 5) {
+            throw new IllegalArgumentException("minRating must be between 1 and 5");
+        }
+        int size = limit == null ? DEFAULT_TOP_REVIEWS : Math.max(1, Math.min(limit, MAX_TOP_REVIEWS));
+
+        // Brands are matched against the catalog so the set of scopes stays bounded
+        String catalogBrand = null;
+        if (brand != null && !brand.isEmpty()) {
+            catalogBrand = evService.getAllBrands().stream()
+                .filter(b -> b.equalsIgnoreCase(brand))
+                .findFirst()
+                .orElse(null);
+            if (catalogBrand == null) {
+                return Collections.emptyList();
+            }
+        }
+
+        Scope scope = new Scope(minRating, catalogBrand, category);
+        Entry entry = entries.computeIfAbsent(scope, this::newEntry);
+        entry.lastRequested = System.currentTimeMillis();
+        List<Review> reviews;
+        try {
+            reviews = entry.current.join();
+        } catch (CompletionException e) {
+            // Failed first load: drop the entry so the next request retries
+            entries.remove(scope, entry);
+            throw new RuntimeException("Failed to load top reviews", e.getCause());
+        }
+        return reviews.size() > size ? reviews.subList(0, size) : reviews;
+    }
+
+    // Reloads every scope in the background; requests keep getting the
+    // previous list until the new one is in place
+    @Scheduled(fixedDelayString = "${reviews.top.refresh-interval-ms:60000}",
+               initialDelayString = "${reviews.top.refresh-interval-ms:60000}")
+    public void refreshAll() {
+        long idleBefore = System.currentTimeMillis() - idleExpiryMillis;
+        for (Map.Entry<Scope, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (entry.lastRequested < idleBefore && !HOMEPAGE_SCOPE.equals(cached.getKey())) {
+                entries.remove(cached.getKey(), entry);
+                continue;
+            }
+            // Skip scopes whose first load or previous refresh is still running
+            if (!entry.current.isDone() || !entry.refreshing.compareAndSet(false, true)) {
+                continue;
+            }
+            load(cached.getKey()).whenComplete((reviews, error) -> {
+                entry.refreshing.set(false);
+                if (error == null) {
+                    entry.current = CompletableFuture.completedFuture(reviews);
+                } else {
+                    System.out.println("Top reviews refresh failed for " + cached.getKey() + ": " + error.getMessage());
+                }
+            });
+        }
+    }
+
+    private Entry newEntry(Scope scope) {
+        return new Entry(load(scope));
+    }
+
+    private CompletableFuture<List<Review>> load(Scope scope) {
+        return CompletableFuture.supplyAsync(() -> Collections.unmodifiableList(
+            reviewRepository.findTopReviews(scope.minRating, scope.brand, scope.category, MAX_TOP_REVIEWS)), loader);
+    }
+
+    private static final class Scope {
+
+        private final int minRating;
+
+        private final String brand;
+
+        private final EVCategory category;
+
+        Scope(int minRating, String brand, EVCategory category) {
+            this.minRating = minRating;
+            this.brand = brand;
+            this.category = category;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Scope)) {
+                return false;
+            }
+            Scope other = (Scope) o;
+            return minRating == other.minRating && Objects.equals(brand, other.brand) && category == other.category;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(minRating, brand, category);
+        }
+
+        @Override
+        public String toString() {
+            return "minRating=" + minRating + ", brand=" + brand + ", category=" + category;
+        }
+    }
+
+    private static final class Entry {
+
+        private volatile CompletableFuture<List<Review>> current;
+
+        private volatile long lastRequested = System.currentTimeMillis();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(CompletableFuture<List<Review>> current) {
+            this.current = current;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.evcommerce.backend.model.User;
 import com.evcommerce.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ReviewVoteService reviewVoteService;
+    
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -52,9 +56,12 @@ public class UserService {
         return userRepository.save(user);
     }
     
+    // The user's review votes are deleted with the account by the database
+    @Transactional
     public void deleteUser(Long id) {
         User user = userRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("User not found"));
+        reviewVoteService.retractVotesOf(id);
         userRepository.delete(user);
     }
     
@@ -1,6 +1,11 @@
 package com.evcommerce.backend.controller;
 
 import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EVSummary;
+import com.evcommerce.backend.service.EVComparisonService;
+import com.evcommerce.backend.service.EVExportService;
+import com.evcommerce.backend.service.EVImportService;
+import com.evcommerce.backend.service.EVLeaderboardService;
 import com.evcommerce.backend.service.EVService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -9,14 +14,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -29,6 +40,18 @@ public class EVControllerTest {
     @MockBean
     private EVService evService;
 
+    @MockBean
+    private EVComparisonService evComparisonService;
+
+    @MockBean
+    private EVExportService evExportService;
+
+    @MockBean
+    private EVImportService evImportService;
+
+    @MockBean
+    private EVLeaderboardService evLeaderboardService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -37,14 +60,109 @@ public class EVControllerTest {
         EV ev1 = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         EV ev2 = new EV("Leaf", "Nissan", "Electric hatchback", new BigDecimal("32000"), 240, 62, 7);
         
-        when(evService.getAllEVs()).thenReturn(Arrays.asList(ev1, ev2));
+        when(evService.getAvailablePage(null, null, null)).thenReturn(page(null, ev1, ev2));
 
         mockMvc.perform(get("/api/evs"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].model").value("Model 3"))
-                .andExpect(jsonPath("$[0].brand").value("Tesla"))
-                .andExpect(jsonPath("$[1].model").value("Leaf"))
-                .andExpect(jsonPath("$[1].brand").value("Nissan"));
+                .andExpect(jsonPath("$.items[0].model").value("Model 3"))
+                .andExpect(jsonPath("$.items[0].brand").value("Tesla"))
+                .andExpect(jsonPath("$.items[1].model").value("Leaf"))
+                .andExpect(jsonPath("$.items[1].brand").value("Nissan"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void testGetAllEVsNotModified() throws Exception {
+        when(evService.getCatalogVersion()).thenReturn(42L);
+
+        mockMvc.perform(get("/api/evs"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"evs-42\""));
+
+        mockMvc.perform(get("/api/evs").header("If-None-Match", "\"evs-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Catalog contents are only read for the first request
+        verify(evService, times(1)).getAvailablePage(null, null, null);
+    }
+
+    @Test
+    public void testGetEVPage() throws Exception {
+        EV ev = new EV("Leaf", "Nissan", "Electric hatchback", new BigDecimal("32000"), 240, 62, 7);
+        ev.setId(2L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", Arrays.asList(ev));
+        page.put("size", 1);
+        page.put("nextCursor", "MzIwMDB8Mg");
+
+        when(evService.getEVPage("price", "asc", null, 1, null)).thenReturn(page);
+
+        mockMvc.perform(get("/api/evs/page")
+                .param("sort", "price")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].model").value("Leaf"))
+                .andExpect(jsonPath("$.nextCursor").value("MzIwMDB8Mg"));
+    }
+
+    @Test
+    public void testGetEVPageInvalidSort() throws Exception {
+        when(evService.getEVPage("color", "asc", null, null, null))
+                .thenThrow(new IllegalArgumentException("Unsupported sort: color"));
+
+        mockMvc.perform(get("/api/evs/page").param("sort", "color"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unsupported sort: color"));
+    }
+
+    @Test
+    public void testGetEVsByBrandSummaryView() throws Exception {
+        EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
+        ev.setId(1L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", Arrays.asList(EVSummary.of(ev)));
+        page.put("size", 1);
+        page.put("nextCursor", null);
+
+        when(evService.getBrandPage("Tesla", null, null, "summary")).thenReturn(page);
+
+        mockMvc.perform(get("/api/evs/brand/Tesla").param("fields", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].model").value("Model 3"))
+                .andExpect(jsonPath("$.items[0].description").doesNotExist());
+    }
+
+    @Test
+    public void testExportEVsStreamsNdjson() throws Exception {
+        when(evExportService.exportAvailable(eq(5L), any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":6}\n{\"id\":7}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/evs/export").param("afterId", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":6}\n{\"id\":7}\n"));
+    }
+
+    @Test
+    public void testImportEVsCsv() throws Exception {
+        Map<String, Object> report = new HashMap<>();
+        report.put("inserted", 1);
+        report.put("rejected", 0);
+        when(evImportService.importCatalog(any(InputStream.class), eq(EVImportService.Format.CSV))).thenReturn(report);
+
+        mockMvc.perform(post("/api/evs/import")
+                .contentType("text/csv")
+                .content("model,brand\nLeaf,Nissan\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1));
     }
 
     @Test
@@ -84,6 +202,19 @@ public class EVControllerTest {
                 .andExpect(jsonPath("$.brand").value("New Brand"));
     }
 
+    @Test
+    public void testCreateDuplicateEV() throws Exception {
+        EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
+
+        when(evService.createEV(any(EV.class))).thenThrow(new RuntimeException("Vehicle already exists"));
+
+        mockMvc.perform(post("/api/evs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ev)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Vehicle already exists"));
+    }
+
     @Test
     public void testUpdateEV() throws Exception {
         EV ev = new EV("Updated Model", "Updated Brand", "Updated description", new BigDecimal("55000"), 450, 85, 12);
@@ -124,12 +255,18 @@ public class EVControllerTest {
         EV ev1 = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         EV ev2 = new EV("Model Y", "Tesla", "Electric SUV", new BigDecimal("55000"), 330, 75, 8);
         
-        when(evService.getEVsByBrand("Tesla")).thenReturn(Arrays.asList(ev1, ev2));
+        when(evService.getBrandPage("Tesla", null, 1, null)).thenReturn(page("fHwx", ev1));
+        when(evService.getBrandPage("Tesla", "fHwx", 1, null)).thenReturn(page(null, ev2));
+
+        mockMvc.perform(get("/api/evs/brand/Tesla").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].model").value("Model 3"))
+                .andExpect(jsonPath("$.nextCursor").value("fHwx"));
 
-        mockMvc.perform(get("/api/evs/brand/Tesla"))
+        mockMvc.perform(get("/api/evs/brand/Tesla").param("size", "1").param("cursor", "fHwx"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].brand").value("Tesla"))
-                .andExpect(jsonPath("$[1].brand").value("Tesla"));
+                .andExpect(jsonPath("$.items[0].model").value("Model Y"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
@@ -137,36 +274,36 @@ public class EVControllerTest {
         EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         ev.setCategory(EV.EVCategory.SEDAN);
         
-        when(evService.getEVsByCategory(EV.EVCategory.SEDAN)).thenReturn(Arrays.asList(ev));
+        when(evService.getCategoryPage(EV.EVCategory.SEDAN, null, null, null)).thenReturn(page(null, ev));
 
         mockMvc.perform(get("/api/evs/category/SEDAN"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].category").value("SEDAN"));
+                .andExpect(jsonPath("$.items[0].category").value("SEDAN"));
     }
 
     @Test
     public void testGetEVsByPriceRange() throws Exception {
         EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         
-        when(evService.getEVsByPriceRange(new BigDecimal("40000"), new BigDecimal("50000")))
-                .thenReturn(Arrays.asList(ev));
+        when(evService.getPriceRangePage(new BigDecimal("40000"), new BigDecimal("50000"), null, null, null))
+                .thenReturn(page(null, ev));
 
         mockMvc.perform(get("/api/evs/price-range")
                 .param("minPrice", "40000")
                 .param("maxPrice", "50000"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].price").value(45000));
+                .andExpect(jsonPath("$.items[0].price").value(45000));
     }
 
     @Test
     public void testGetEVsByMinRange() throws Exception {
         EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         
-        when(evService.getEVsByMinRange(300)).thenReturn(Arrays.asList(ev));
+        when(evService.getMinRangePage(300, null, null, null)).thenReturn(page(null, ev));
 
         mockMvc.perform(get("/api/evs/range/300"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].rangeKm").value(350));
+                .andExpect(jsonPath("$.items[0].rangeKm").value(350));
     }
 
     @Test
@@ -174,8 +311,9 @@ public class EVControllerTest {
         EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
         ev.setCategory(EV.EVCategory.SEDAN);
         
-        when(evService.getEVsWithFilters("Tesla", EV.EVCategory.SEDAN, new BigDecimal("40000"), new BigDecimal("50000"), 300))
-                .thenReturn(Arrays.asList(ev));
+        when(evService.getFilteredPage("Tesla", EV.EVCategory.SEDAN, new BigDecimal("40000"), new BigDecimal("50000"), 300,
+                null, null, null))
+                .thenReturn(page(null, ev));
 
         mockMvc.perform(get("/api/evs/filter")
                 .param("brand", "Tesla")
@@ -184,7 +322,17 @@ public class EVControllerTest {
                 .param("maxPrice", "50000")
                 .param("minRange", "300"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].brand").value("Tesla"));
+                .andExpect(jsonPath("$.items[0].brand").value("Tesla"));
+    }
+
+    @Test
+    public void testGetEVsWithFiltersInvalidCursor() throws Exception {
+        when(evService.getFilteredPage("Tesla", null, null, null, null, "bad", null, null))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/evs/filter").param("brand", "Tesla").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
     }
 
     @Test
@@ -214,4 +362,12 @@ public class EVControllerTest {
                 .andExpect(jsonPath("$[0].model").value("Model 3"))
                 .andExpect(jsonPath("$[1].model").value("Leaf"));
     }
-} 
\ No newline at end of file
+
+    private Map<String, Object> page(String nextCursor, EV... evs) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", Arrays.asList(evs));
+        page.put("size", evs.length);
+        page.put("nextCursor", nextCursor);
+        return page;
+    }
+}
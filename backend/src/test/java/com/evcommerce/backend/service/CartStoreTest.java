@@ -0,0 +1,477 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.CartItem;
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.User;
+import com.evcommerce.backend.repository.CartItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartStoreTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EVService evService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private CartStore cartStore;
+
+    // Stand-in for cart_items: id -> [id, user_id, ev_id, quantity, price],
+    // unique on (user_id, ev_id) like the real table
+    private final Map<Long, Object[]> table = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger writeStatements = new AtomicInteger();
+
+    private final Map<Long, EV> evs = new TreeMap<>();
+
+    private final CountDownLatch sweepStarted = new CountDownLatch(1);
+
+    private CountDownLatch sweepRelease = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        for (long id = 1; id <= 5; id++) {
+            EV ev = new EV();
+            ev.setId(id);
+            ev.setPrice(BigDecimal.valueOf(40000 + id * 1000));
+            evs.put(id, ev);
+            when(evService.getEVById(id)).thenReturn(Optional.of(ev));
+        }
+        for (long id = 1; id <= 8; id++) {
+            User user = new User("user" + id, "user" + id + "@example.com", "password123");
+            user.setId(id);
+            when(userService.getUserById(id)).thenReturn(Optional.of(user));
+        }
+
+        when(jdbcTemplate.queryForList(eq(CartStore.RESERVE_IDS_SQL), eq(Long.class), any())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < (Integer) invocation.getArgument(2); i++) {
+                ids.add(sequence.incrementAndGet());
+            }
+            return ids;
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            synchronized (table) {
+                for (Object[] row : rows) {
+                    if (invocation.getArgument(0).equals(CartStore.UPSERT_SQL)) {
+                        upsert(row);
+                    } else if (invocation.getArgument(0).equals(CartStore.SWEEP_SQL)) {
+                        sweepStarted.countDown();
+                        sweepRelease.await(10, TimeUnit.SECONDS);
+                        table.values().removeIf(stored -> stored[1].equals(row[0]));
+                    } else {
+                        table.values().removeIf(stored -> stored[1].equals(row[0]) && stored[2].equals(row[1]));
+                    }
+                }
+            }
+            writeStatements.addAndGet(rows.size());
+            return new int[rows.size()];
+        });
+        when(jdbcTemplate.update(eq(CartStore.CLEAR_SQL), any(Object.class))).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(1);
+            table.values().removeIf(row -> row[1].equals(userId));
+            return 0;
+        });
+        when(cartItemRepository.findByUserIdWithEv(anyLong())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            List<CartItem> rows = new ArrayList<>();
+            for (Object[] row : table.values()) {
+                if (row[1].equals(userId)) {
+                    CartItem item = new CartItem();
+                    item.setId((Long) row[0]);
+                    item.setEv(evs.get((Long) row[2]));
+                    item.setQuantity((Integer) row[3]);
+                    item.setPrice((BigDecimal) row[4]);
+                    rows.add(item);
+                }
+            }
+            return rows;
+        });
+        when(cartItemRepository.findOwnerId(anyLong())).thenAnswer(invocation ->
+            Optional.ofNullable(table.get((Long) invocation.getArgument(0))).map(row -> (Long) row[1]));
+        when(cartItemRepository.summarizeByUserId(anyLong())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            List<Object[]> summary = new ArrayList<>();
+            if (userId <= 8) {
+                long count = 0;
+                BigDecimal total = null;
+                for (Object[] row : table.values()) {
+                    if (row[1].equals(userId)) {
+                        count++;
+                        BigDecimal line = ((BigDecimal) row[4]).multiply(BigDecimal.valueOf((Integer) row[3]));
+                        total = total == null ? line : total.add(line);
+                    }
+                }
+                summary.add(new Object[] {count, total});
+            }
+            return summary;
+        });
+    }
+
+    @Test
+    void testEditsAreServedFromMemoryAndCoalescedIntoOneFlush() {
+        CartItem first = cartStore.add(1L, evs.get(1L), 1);
+        cartStore.add(1L, evs.get(1L), 2);
+        CartItem second = cartStore.add(1L, evs.get(2L), 1);
+        cartStore.updateQuantity(second.getId(), 4);
+        cartStore.updateQuantity(second.getId(), 5);
+        CartItem third = cartStore.add(1L, evs.get(3L), 1);
+        cartStore.remove(third.getId());
+
+        // The owner sees every edit before anything is written
+        assertEquals(2, cartStore.getItemCount(1L));
+        assertEquals(3, cartStore.getItems(1L).get(0).getQuantity());
+        assertEquals(new BigDecimal("333000"), cartStore.getTotal(1L));
+        assertTrue(table.isEmpty());
+
+        assertEquals(1, cartStore.flush());
+        // Seven edits became two upserts and one delete in one transaction
+        assertEquals(3, writeStatements.get());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(3, table.get(first.getId())[3]);
+        assertEquals(5, table.get(second.getId())[3]);
+        assertEquals(0, cartStore.flush());
+        verify(userService, times(1)).getUserById(1L);
+        verify(cartItemRepository, times(1)).findByUserIdWithEv(1L);
+    }
+
+    @Test
+    void testCrashLosesOnlyEditsAfterTheLastFlush() {
+        CartItem kept = cartStore.add(2L, evs.get(1L), 1);
+        cartStore.add(2L, evs.get(2L), 2);
+        cartStore.flush();
+
+        // Edits within the flush interval before the crash
+        cartStore.updateQuantity(kept.getId(), 9);
+        cartStore.add(2L, evs.get(3L), 1);
+
+        // A new process starts from the table alone
+        CartStore restarted = restartedStore();
+        List<CartItem> recovered = restarted.getItems(2L);
+        assertEquals(2, recovered.size());
+        assertEquals(1, recovered.get(0).getQuantity());
+        assertEquals(2L, recovered.get(1).getEv().getId());
+        assertEquals(2, recovered.get(1).getQuantity());
+
+        // Nothing acknowledged before the last flush was lost
+        CartItem moved = restarted.updateQuantity(kept.getId(), 4);
+        assertEquals(4, moved.getQuantity());
+        restarted.flush();
+        assertEquals(4, table.get(kept.getId())[3]);
+    }
+
+    @Test
+    void testCheckoutClearDeletesRowsInItsTransactionAndBlocksResurrection() {
+        CartItem flushed = cartStore.add(3L, evs.get(1L), 1);
+        cartStore.flush();
+        cartStore.updateQuantity(flushed.getId(), 2);
+        cartStore.add(3L, evs.get(2L), 1);
+
+        // A rolled back checkout leaves the cart as it was
+        inTransaction(false, () -> cartStore.clear(3L));
+        assertEquals(2, cartStore.getItemCount(3L));
+
+        inTransaction(true, () -> cartStore.clear(3L));
+        assertEquals(0, cartStore.getItemCount(3L));
+        cartStore.flush();
+        assertTrue(table.isEmpty());
+
+        // The user can keep shopping after checkout
+        cartStore.add(3L, evs.get(4L), 1);
+        cartStore.flush();
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testSummaryOfUnloadedCartIsOneAggregateQuery() {
+        cartStore.add(4L, evs.get(1L), 2);
+        cartStore.add(4L, evs.get(2L), 1);
+        cartStore.flush();
+
+        // Served from memory while the cart is loaded
+        Map<String, Object> resident = cartStore.getSummary(4L);
+        assertEquals(2L, resident.get("count"));
+        assertEquals(new BigDecimal("124000"), resident.get("total"));
+        verify(cartItemRepository, never()).summarizeByUserId(anyLong());
+
+        // After a restart the summary reads the table without loading the cart
+        CartStore restarted = restartedStore();
+        reset(userService);
+        Map<String, Object> summary = restarted.getSummary(4L);
+        assertEquals(2L, summary.get("count"));
+        assertEquals(0, new BigDecimal("124000").compareTo((BigDecimal) summary.get("total")));
+        assertEquals(BigDecimal.ZERO, restarted.getTotal(5L));
+        assertEquals(0L, restarted.getItemCount(5L));
+        assertEquals("User not found",
+            assertThrows(RuntimeException.class, () -> restarted.getSummary(99L)).getMessage());
+        verify(cartItemRepository, times(4)).summarizeByUserId(anyLong());
+        verify(cartItemRepository, times(1)).findByUserIdWithEv(anyLong());
+        verifyNoInteractions(userService);
+        assertEquals(0, restarted.getResidentCartCount());
+    }
+
+    @Test
+    void testBatchAppliesAllOperationsOrNone() {
+        CartItem kept = cartStore.add(5L, evs.get(1L), 1);
+        CartItem dropped = cartStore.add(5L, evs.get(2L), 1);
+        CartItem otherUsers = cartStore.add(6L, evs.get(1L), 1);
+        cartStore.flush();
+        writeStatements.set(0);
+
+        List<CartItem> cart = cartStore.apply(5L, List.of(
+            CartStore.Operation.add(evs.get(3L), 2),
+            CartStore.Operation.setQuantity(kept.getId(), 4),
+            CartStore.Operation.remove(dropped.getId()),
+            CartStore.Operation.add(evs.get(2L), 1),
+            CartStore.Operation.add(evs.get(3L), 1)));
+        assertEquals(List.of(1L, 3L, 2L), cart.stream().map(item -> item.getEv().getId()).collect(Collectors.toList()));
+        assertEquals(List.of(4, 3, 1), cart.stream().map(CartItem::getQuantity).collect(Collectors.toList()));
+        assertNotEquals(dropped.getId(), cart.get(2).getId());
+
+        // A failing step, such as another user's line, leaves the cart untouched
+        List<CartItem> before = cartStore.getItems(5L);
+        assertEquals("Cart item not found", assertThrows(RuntimeException.class, () -> cartStore.apply(5L, List.of(
+            CartStore.Operation.add(evs.get(4L), 1),
+            CartStore.Operation.setQuantity(kept.getId(), 9),
+            CartStore.Operation.remove(otherUsers.getId())))).getMessage());
+        assertEquals(before.stream().map(CartItem::getQuantity).collect(Collectors.toList()),
+            cartStore.getItems(5L).stream().map(CartItem::getQuantity).collect(Collectors.toList()));
+
+        // The whole batch is written by one flush
+        assertEquals(1, cartStore.flush());
+        assertEquals(4, writeStatements.get());
+        assertNull(table.get(dropped.getId()));
+        assertEquals(4, table.get(kept.getId())[3]);
+        assertEquals(1, table.get(otherUsers.getId())[3]);
+        assertEquals(3L, table.values().stream().filter(row -> row[1].equals(5L)).count());
+    }
+
+    @Test
+    void testParallelAddsOfTheSameItemKeepEveryIncrement() throws Exception {
+        int adds = 400;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        AtomicBoolean adding = new AtomicBoolean(true);
+        Future<?> flusher = executor.submit(() -> {
+            while (adding.get()) {
+                cartStore.flush();
+            }
+        });
+        List<Future<CartItem>> results = new ArrayList<>();
+        for (int i = 0; i < adds; i++) {
+            results.add(executor.submit(() -> cartStore.add(7L, evs.get(1L), 1)));
+        }
+        for (Future<CartItem> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        adding.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+        cartStore.flush();
+
+        List<CartItem> items = cartStore.getItems(7L);
+        assertEquals(1, items.size());
+        assertEquals(adds, items.get(0).getQuantity());
+        List<Object[]> rows = table.values().stream().filter(row -> row[1].equals(7L)).collect(Collectors.toList());
+        assertEquals(1, rows.size());
+        assertEquals(adds, rows.get(0)[3]);
+
+        // A line stored under another id (e.g. by another instance) is merged
+        // into, not duplicated
+        table.clear();
+        table.put(-1L, new Object[] {-1L, 7L, 1L, 2, evs.get(1L).getPrice()});
+        cartStore.add(7L, evs.get(1L), 1);
+        cartStore.flush();
+        assertEquals(1, table.size());
+        assertEquals(adds + 1, table.get(-1L)[3]);
+
+        // and removing the line deletes that row, though its id differs
+        cartStore.remove(items.get(0).getId());
+        cartStore.flush();
+        assertTrue(table.isEmpty());
+        assertTrue(restartedStore().getItems(7L).isEmpty());
+    }
+
+    @Test
+    void testFlushRejectedBySchemaFailsLoudlyAndKeepsEdits() {
+        CartItem line = cartStore.add(8L, evs.get(1L), 2);
+        doThrow(new BadSqlGrammarException("flush", CartStore.UPSERT_SQL,
+                new SQLException("constraint \"uk_cart_item_user_ev\" does not exist", "42704")))
+            .when(jdbcTemplate).batchUpdate(eq(CartStore.UPSERT_SQL), anyList());
+
+        assertThrows(IllegalStateException.class, () -> cartStore.flush());
+        assertThrows(IllegalStateException.class, () -> cartStore.flush());
+        assertTrue(table.isEmpty());
+
+        // Once the schema is fixed the kept edits are written
+        doAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(this::upsert);
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(eq(CartStore.UPSERT_SQL), anyList());
+        assertEquals(1, cartStore.flush());
+        assertEquals(2, table.get(line.getId())[3]);
+    }
+
+    @Test
+    void testSweepSkipsLoadedCartsAndHoldsBackLoads() throws Exception {
+        CartItem active = cartStore.add(1L, evs.get(1L), 1);
+        cartStore.flush();
+        table.put(-2L, new Object[] {-2L, 2L, 1L, 1, evs.get(1L).getPrice()});
+
+        // The loaded cart is skipped; a load of the cart being swept waits
+        sweepRelease = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Integer> sweep = executor.submit(() ->
+            cartStore.sweep(List.of(1L, 2L), new Timestamp(System.currentTimeMillis())));
+        assertTrue(sweepStarted.await(10, TimeUnit.SECONDS));
+        Future<List<CartItem>> load = executor.submit(() -> cartStore.getItems(2L));
+        Thread.sleep(100);
+        assertFalse(load.isDone());
+        sweepRelease.countDown();
+
+        assertEquals(0, sweep.get(10, TimeUnit.SECONDS));
+        assertTrue(load.get(10, TimeUnit.SECONDS).isEmpty());
+        executor.shutdown();
+        assertNotNull(table.get(active.getId()));
+        assertNull(table.get(-2L));
+        verify(jdbcTemplate).batchUpdate(eq(CartStore.SWEEP_SQL), argThat((List<Object[]> args) ->
+            args.size() == 1 && args.get(0)[0].equals(2L)));
+    }
+
+    @Test
+    void testUnknownUserAndItem() {
+        assertEquals("User not found",
+            assertThrows(RuntimeException.class, () -> cartStore.getItems(99L)).getMessage());
+        assertEquals("Cart item not found",
+            assertThrows(RuntimeException.class, () -> cartStore.updateQuantity(12345L, 1)).getMessage());
+        assertEquals(0, cartStore.getResidentCartCount());
+    }
+
+    @Test
+    void testConcurrentEditsMatchTableAfterFinalFlush() throws Exception {
+        int users = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(users + 1);
+        AtomicBoolean editing = new AtomicBoolean(true);
+        Future<?> flusher = executor.submit(() -> {
+            while (editing.get()) {
+                cartStore.flush();
+            }
+        });
+        List<Future<?>> editors = new ArrayList<>();
+        for (long user = 1; user <= users; user++) {
+            long userId = user;
+            editors.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    EV ev = evs.get(1 + (long) (i % 5));
+                    CartItem item = cartStore.add(userId, ev, 1);
+                    if (i % 7 == 0) {
+                        cartStore.remove(item.getId());
+                    } else if (i % 5 == 0) {
+                        cartStore.updateQuantity(item.getId(), 1 + i % 3);
+                    }
+                }
+            }));
+        }
+        for (Future<?> editor : editors) {
+            editor.get(60, TimeUnit.SECONDS);
+        }
+        editing.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+        cartStore.flush();
+
+        for (long user = 1; user <= users; user++) {
+            Long userId = user;
+            Map<Long, Integer> inMemory = cartStore.getItems(userId).stream()
+                .collect(Collectors.toMap(CartItem::getId, CartItem::getQuantity));
+            Map<Long, Integer> stored = table.values().stream()
+                .filter(row -> row[1].equals(userId))
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Integer) row[3]));
+            assertEquals(inMemory, stored);
+        }
+    }
+
+    // INSERT ... ON CONFLICT (user_id, ev_id) DO UPDATE on the fake table
+    private void upsert(Object[] row) {
+        for (Object[] stored : table.values()) {
+            if (stored[1].equals(row[1]) && stored[2].equals(row[2])) {
+                stored[3] = row[3];
+                stored[4] = row[4];
+                return;
+            }
+        }
+        assertFalse(table.containsKey((Long) row[0]));
+        table.put((Long) row[0], row.clone());
+    }
+
+    // A fresh store over the same table and mocks, as after a restart
+    private CartStore restartedStore() {
+        CartStore restarted = new CartStore();
+        ReflectionTestUtils.setField(restarted, "cartItemRepository", cartItemRepository);
+        ReflectionTestUtils.setField(restarted, "userService", userService);
+        ReflectionTestUtils.setField(restarted, "evService", evService);
+        ReflectionTestUtils.setField(restarted, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+        return restarted;
+    }
+
+    private void inTransaction(boolean commit, Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(commit
+                        ? TransactionSynchronization.STATUS_COMMITTED
+                        : TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
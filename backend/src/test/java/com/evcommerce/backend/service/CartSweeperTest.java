@@ -0,0 +1,115 @@
+package com.evcommerce.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CartSweeperTest {
+
+    @Mock
+    private CartStore cartStore;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CartSweeper cartSweeper;
+
+    // Stale lines as [user_id, updated_at, id], in (updated_at, id) order
+    private final List<Object[]> lines = new ArrayList<>();
+
+    private final List<Object> afterIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(cartSweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(cartSweeper, "pauseMillis", 0L);
+        long day = 24L * 60 * 60 * 1000;
+        lines.add(new Object[] {1L, new Timestamp(10 * day), 11L});
+        lines.add(new Object[] {2L, new Timestamp(10 * day), 12L});
+        lines.add(new Object[] {1L, new Timestamp(11 * day), 13L});
+        lines.add(new Object[] {3L, new Timestamp(12 * day), 14L});
+        lines.add(new Object[] {3L, new Timestamp(12 * day), 15L});
+
+        when(jdbcTemplate.query(eq(CartSweeper.CANDIDATES_SQL), ArgumentMatchers.<RowMapper<Object[]>>any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                Timestamp afterUpdatedAt = invocation.getArgument(3);
+                long afterId = invocation.getArgument(4);
+                int limit = invocation.getArgument(5);
+                afterIds.add(afterId);
+                List<Object[]> page = new ArrayList<>();
+                for (Object[] line : lines) {
+                    int order = ((Timestamp) line[1]).compareTo(afterUpdatedAt);
+                    if ((order > 0 || (order == 0 && (Long) line[2] > afterId)) && page.size() < limit) {
+                        page.add(line);
+                    }
+                }
+                return page;
+            });
+        when(cartStore.sweep(anyCollection(), any())).thenAnswer(invocation -> {
+            Collection<Long> userIds = invocation.getArgument(0);
+            return userIds.size();
+        });
+    }
+
+    @Test
+    void testSweepsInKeysetBatchesAndRecordsRows() {
+        assertEquals(5, cartSweeper.sweep());
+
+        // Three batches of at most two lines, each continuing after the last
+        assertEquals(List.of(0L, 12L, 14L), afterIds);
+        verify(cartStore).sweep(eq(Set.of(1L, 2L)), any());
+        verify(cartStore).sweep(eq(Set.of(1L, 3L)), any());
+        verify(cartStore).sweep(eq(Set.of(3L)), any());
+
+        Map<String, Object> stats = cartSweeper.getStats();
+        assertEquals(1L, stats.get("runs"));
+        assertEquals(5L, stats.get("totalRowsSwept"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> lastRun = (Map<String, Object>) stats.get("lastRun");
+        assertEquals(5, lastRun.get("rowsSwept"));
+        assertEquals(3, lastRun.get("batches"));
+        assertEquals(true, lastRun.get("complete"));
+    }
+
+    @Test
+    void testRunIsBoundedByMaxBatches() {
+        ReflectionTestUtils.setField(cartSweeper, "maxBatches", 1);
+
+        assertEquals(2, cartSweeper.sweep());
+        verify(cartStore, times(1)).sweep(anyCollection(), any());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> lastRun = (Map<String, Object>) cartSweeper.getStats().get("lastRun");
+        assertEquals(false, lastRun.get("complete"));
+    }
+
+    @Test
+    void testRunBacksOffWhileCheckoutsAreInFlight() {
+        when(cartStore.getActiveCheckoutCount()).thenReturn(1);
+
+        assertEquals(0, cartSweeper.sweep());
+        verifyNoInteractions(jdbcTemplate);
+        verify(cartStore, never()).sweep(anyCollection(), any());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> lastRun = (Map<String, Object>) cartSweeper.getStats().get("lastRun");
+        assertEquals(false, lastRun.get("complete"));
+        assertTrue((Integer) lastRun.get("deferrals") > 1);
+    }
+}
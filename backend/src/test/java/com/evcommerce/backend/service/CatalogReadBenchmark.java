@@ -0,0 +1,93 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.EvBackendApplication;
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.repository.EVRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Latency of the /api/evs body with and without the catalog snapshot: the
+// available vehicles serialized with the application's ObjectMapper, read
+// either from the snapshot or, as before it, with findByAvailableTrue. It
+// needs a Postgres database it may fill with synthetic vehicles, by default
+// evbench on localhost (createdb evbench). Run with:
+//   mvn -Pbenchmark -DskipTests test -Dbenchmark=CatalogReadBenchmark
+// and add -p databaseUrl=... through JMH to point it elsewhere.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogReadBenchmark {
+
+    @Param("jdbc:postgresql://localhost:5432/evbench")
+    private String databaseUrl;
+
+    @Param("1000")
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+
+    private EVService evService;
+
+    private EVRepository evRepository;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void startApplication() {
+        context = SpringApplication.run(EvBackendApplication.class,
+            "--spring.main.web-application-type=none",
+            "--spring.datasource.url=" + databaseUrl,
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN");
+        evService = context.getBean(EVService.class);
+        evRepository = context.getBean(EVRepository.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        // Top the catalog up to catalogSize with synthetic vehicles on the
+        // first run; later runs reuse them
+        long existing = evRepository.count();
+        if (existing < catalogSize) {
+            List<EV> evs = EVSearchIndexBenchmark.catalog(catalogSize, new Random(7));
+            List<EV> missing = evs.subList((int) existing, catalogSize);
+            for (EV ev : missing) {
+                ev.setId(null);
+            }
+            evRepository.saveAll(missing);
+            evService.reloadCatalog();
+        }
+    }
+
+    @TearDown
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] snapshot() throws Exception {
+        return objectMapper.writeValueAsBytes(evService.getAllEVs());
+    }
+
+    @Benchmark
+    public byte[] repository() throws Exception {
+        return objectMapper.writeValueAsBytes(evRepository.findByAvailableTrue());
+    }
+}
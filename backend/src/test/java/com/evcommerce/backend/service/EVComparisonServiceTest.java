@@ -0,0 +1,108 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EVComparisonServiceTest {
+
+    @Mock
+    private EVService evService;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @InjectMocks
+    private EVComparisonService evComparisonService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        EV model3 = createEV(1L, "Model 3", "Tesla", "45000", 350, 75, 8);
+        EV leaf = createEV(2L, "Leaf", "Nissan", "32000", 240, 62, 7);
+        EV taycan = createEV(3L, "Taycan", "Porsche", "85000", 450, 93, 9);
+        CatalogSnapshot snapshot = new CatalogSnapshot(1L, Arrays.asList(model3, leaf, taycan));
+
+        when(evService.getSnapshot()).thenReturn(snapshot);
+        when(evService.getCatalogVersion()).thenReturn(1L);
+        List<Object[]> stats = new ArrayList<>();
+        stats.add(new Object[] {1L, 4.5, 2L});
+        stats.add(new Object[] {3L, 3.0, 1L});
+        when(reviewRepository.getRatingStatsByEvIds(any())).thenReturn(stats);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMatrixPreservesRequestOrderAndMarksBest() {
+        Map<String, Object> result = evComparisonService.compare(Arrays.asList(3L, 1L, 2L));
+
+        assertEquals(Arrays.asList(3L, 1L, 2L), result.get("ids"));
+        List<Map<String, Object>> vehicles = (List<Map<String, Object>>) result.get("vehicles");
+        assertEquals(3L, vehicles.get(0).get("id"));
+        assertEquals(2L, vehicles.get(2).get("id"));
+
+        // 45000 / 350 km and 75 kWh / 350 km * 100
+        Map<String, Object> model3 = vehicles.get(1);
+        assertEquals(new BigDecimal("128.57"), model3.get("pricePerKm"));
+        assertEquals(new BigDecimal("21.43"), model3.get("kWhPer100Km"));
+        assertEquals(new BigDecimal("4.50"), model3.get("averageRating"));
+        assertEquals(0L, vehicles.get(2).get("reviewCount"));
+
+        Map<String, List<Long>> best = (Map<String, List<Long>>) result.get("best");
+        assertEquals(List.of(2L), best.get("price"));
+        assertEquals(List.of(3L), best.get("rangeKm"));
+        assertEquals(List.of(1L), best.get("averageRating"));
+
+        Map<String, Object> leafScores = (Map<String, Object>) vehicles.get(2).get("normalized");
+        assertEquals(0, BigDecimal.ONE.compareTo((BigDecimal) leafScores.get("price")));
+        assertNull(leafScores.get("averageRating"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSameIdSetIsServedFromCacheInAnyOrder() {
+        evComparisonService.compare(Arrays.asList(1L, 2L));
+        Map<String, Object> reordered = evComparisonService.compare(Arrays.asList(2L, 1L, 2L));
+
+        assertEquals(Arrays.asList(2L, 1L), reordered.get("ids"));
+        // Review stats are fetched once, in a single batched query
+        verify(reviewRepository, times(1)).getRatingStatsByEvIds(any(Collection.class));
+
+        // A catalog write invalidates cached matrices
+        when(evService.getCatalogVersion()).thenReturn(2L);
+        evComparisonService.compare(Arrays.asList(1L, 2L));
+        verify(reviewRepository, times(2)).getRatingStatsByEvIds(any(Collection.class));
+    }
+
+    @Test
+    void testInvalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> evComparisonService.compare(List.of()));
+        assertThrows(IllegalArgumentException.class,
+            () -> evComparisonService.compare(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L)));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> evComparisonService.compare(Arrays.asList(1L, 99L)));
+        assertEquals("EV not found: 99", exception.getMessage());
+    }
+
+    private EV createEV(Long id, String model, String brand, String price, int rangeKm, int battery, int charging) {
+        EV ev = new EV(model, brand, model + " description", new BigDecimal(price), rangeKm, battery, charging);
+        ev.setId(id);
+        return ev;
+    }
+}
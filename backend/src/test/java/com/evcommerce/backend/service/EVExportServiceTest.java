@@ -0,0 +1,85 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.repository.EVRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EVExportServiceTest {
+
+    @Mock
+    private EVRepository evRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private EVExportService evExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testWritesOneVehiclePerLineAndDetachesRows() throws Exception {
+        EV model3 = createEV(1L, "Model 3", "Tesla");
+        EV leaf = createEV(2L, "Leaf", "Nissan");
+        when(evRepository.streamAvailableAfter(0L)).thenReturn(Stream.of(model3, leaf));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = evExportService.exportAvailable(null, out);
+
+        assertEquals(2, written);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1L, first.get("id").asLong());
+        assertEquals("Model 3", first.get("model").asText());
+        assertEquals("Leaf", objectMapper.readTree(lines[1]).get("model").asText());
+
+        // Rows are released from the persistence context as they are written
+        verify(entityManager).detach(model3);
+        verify(entityManager).detach(leaf);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testResumesAfterGivenId() throws Exception {
+        when(evRepository.streamAvailableAfter(41L)).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, evExportService.exportAvailable(41L, out));
+        assertEquals(0, out.size());
+        verify(evRepository).streamAvailableAfter(41L);
+    }
+
+    private EV createEV(Long id, String model, String brand) {
+        EV ev = new EV(model, brand, model + " description", new BigDecimal("45000"), 350, 75, 8);
+        ev.setId(id);
+        return ev;
+    }
+}
@@ -0,0 +1,154 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EVFilterIndexTest {
+
+    private static final String[] BRANDS = {"Tesla", "Nissan", "Ford", "Porsche", "Kia", "tesla"};
+
+    @Test
+    void testFilterMatchesQuerySemantics() {
+        Random random = new Random(4413);
+
+        for (int round = 0; round < 200; round++) {
+            List<EV> catalog = randomCatalog(random, random.nextInt(300));
+            EVFilterIndex index = new EVFilterIndex(catalog);
+
+            for (int query = 0; query < 50; query++) {
+                String brand = random.nextInt(3) == 0 ? null : randomBrand(random);
+                EVCategory category = random.nextInt(3) == 0 ? null : randomCategory(random);
+                BigDecimal minPrice = random.nextBoolean() ? null : randomPrice(random);
+                BigDecimal maxPrice = random.nextBoolean() ? null : randomPrice(random);
+                Integer minRange = random.nextBoolean() ? null : 100 + random.nextInt(500);
+
+                List<EV> expected = referenceFilter(catalog, brand, category, minPrice, maxPrice, minRange);
+                List<EV> actual = index.filter(brand, category, minPrice, maxPrice, minRange);
+
+                assertEquals(ids(expected), ids(actual),
+                        String.format("brand=%s category=%s minPrice=%s maxPrice=%s minRange=%s",
+                                brand, category, minPrice, maxPrice, minRange));
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFacetCountsMatchFilterResults() {
+        Random random = new Random(4414);
+
+        for (int round = 0; round < 100; round++) {
+            List<EV> catalog = randomCatalog(random, random.nextInt(300));
+            EVFilterIndex index = new EVFilterIndex(catalog);
+
+            for (int query = 0; query < 20; query++) {
+                String brand = random.nextInt(3) == 0 ? null : randomBrand(random);
+                EVCategory category = random.nextInt(3) == 0 ? null : randomCategory(random);
+                BigDecimal minPrice = random.nextBoolean() ? null : randomPrice(random);
+                BigDecimal maxPrice = random.nextBoolean() ? null : randomPrice(random);
+                Integer minRange = random.nextBoolean() ? null : 100 + random.nextInt(500);
+
+                Map<String, Object> facets = index.facets(brand, category, minPrice, maxPrice, minRange);
+
+                assertEquals(index.filter(brand, category, minPrice, maxPrice, minRange).size(), facets.get("total"));
+
+                // Selecting a facet value must return exactly the advertised count
+                Map<String, Integer> brands = (Map<String, Integer>) facets.get("brands");
+                for (String candidate : BRANDS) {
+                    int expected = index.filter(candidate, category, minPrice, maxPrice, minRange).size();
+                    assertEquals(expected, brands.getOrDefault(candidate, 0).intValue(), candidate);
+                }
+                Map<String, Integer> categories = (Map<String, Integer>) facets.get("categories");
+                for (EVCategory candidate : EVCategory.values()) {
+                    int expected = index.filter(brand, candidate, minPrice, maxPrice, minRange).size();
+                    assertEquals(expected, categories.get(candidate.name()).intValue(), candidate.name());
+                }
+                for (Map<String, Object> bucket : (List<Map<String, Object>>) facets.get("rangeBuckets")) {
+                    int expected = index.filter(brand, category, minPrice, maxPrice, (Integer) bucket.get("minRange")).size();
+                    assertEquals(expected, bucket.get("count"));
+                }
+
+                // Price buckets are half-open, so compare against the rows directly
+                List<EV> priceIgnored = index.filter(brand, category, null, null, minRange);
+                for (Map<String, Object> bucket : (List<Map<String, Object>>) facets.get("priceBuckets")) {
+                    BigDecimal min = (BigDecimal) bucket.get("min");
+                    BigDecimal max = (BigDecimal) bucket.get("max");
+                    long expected = priceIgnored.stream()
+                            .filter(ev -> ev.getPrice() != null)
+                            .filter(ev -> min == null || ev.getPrice().compareTo(min) >= 0)
+                            .filter(ev -> max == null || ev.getPrice().compareTo(max) < 0)
+                            .count();
+                    assertEquals((int) expected, bucket.get("count"));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnknownBrandAndEmptyCatalog() {
+        assertTrue(new EVFilterIndex(List.of()).filter(null, null, null, null, null).isEmpty());
+
+        EV ev = new EV("Model 3", "Tesla", "Electric sedan", new BigDecimal("45000"), 350, 75, 8);
+        ev.setId(1L);
+        EVFilterIndex index = new EVFilterIndex(List.of(ev));
+
+        assertTrue(index.filter("Rivian", null, null, null, null).isEmpty());
+        assertEquals(1, index.filter(null, null, new BigDecimal("45000.00"), new BigDecimal("45000"), 350).size());
+    }
+
+    // Straightforward evaluation of the findAvailableEVsWithFilters predicate
+    private List<EV> referenceFilter(List<EV> catalog, String brand, EVCategory category,
+                                     BigDecimal minPrice, BigDecimal maxPrice, Integer minRange) {
+        return catalog.stream()
+                .filter(EV::isAvailable)
+                .filter(ev -> brand == null || brand.equals(ev.getBrand()))
+                .filter(ev -> category == null || category == ev.getCategory())
+                .filter(ev -> minPrice == null || (ev.getPrice() != null && ev.getPrice().compareTo(minPrice) >= 0))
+                .filter(ev -> maxPrice == null || (ev.getPrice() != null && ev.getPrice().compareTo(maxPrice) <= 0))
+                .filter(ev -> minRange == null || (ev.getRangeKm() != null && ev.getRangeKm() >= minRange))
+                .collect(Collectors.toList());
+    }
+
+    private List<EV> randomCatalog(Random random, int size) {
+        List<EV> catalog = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            EV ev = new EV("Model " + i, random.nextInt(20) == 0 ? null : randomBrand(random), "Description",
+                    random.nextInt(20) == 0 ? null : randomPrice(random),
+                    random.nextInt(20) == 0 ? null : 100 + random.nextInt(500), 75, 8);
+            ev.setId((long) i + 1);
+            ev.setCategory(random.nextInt(10) == 0 ? null : randomCategory(random));
+            ev.setAvailable(random.nextInt(5) != 0);
+            catalog.add(ev);
+        }
+        return catalog;
+    }
+
+    private String randomBrand(Random random) {
+        return BRANDS[random.nextInt(BRANDS.length)];
+    }
+
+    private EVCategory randomCategory(Random random) {
+        EVCategory[] categories = EVCategory.values();
+        return categories[random.nextInt(categories.length)];
+    }
+
+    // Coarse values so that ties and boundary hits are common; mixed scales
+    // check that 45000 and 45000.00 compare as equal
+    private BigDecimal randomPrice(Random random) {
+        BigDecimal price = BigDecimal.valueOf(20000 + 5000L * random.nextInt(15));
+        return random.nextBoolean() ? price : price.setScale(2);
+    }
+
+    private List<Long> ids(List<EV> evs) {
+        return evs.stream().map(EV::getId).collect(Collectors.toList());
+    }
+}
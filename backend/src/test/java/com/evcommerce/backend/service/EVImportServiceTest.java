@@ -0,0 +1,127 @@
+package com.evcommerce.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EVImportServiceTest {
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private EVImportService evImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testReadsQuotedCsvWithLineNumbers() throws Exception {
+        String csv = "model,brand,description,price,rangeKm,batteryCapacityKwh,chargingTimeHours\r\n"
+                + "Model 3,Tesla,\"Sedan, with \"\"autopilot\"\"\",45000,350,75,8\r\n"
+                + "Leaf,Nissan,\"Two\nlines\",32000,240,62,7\n"
+                + "Ioniq 5,Hyundai,Crossover,42000,400,77,7\n";
+
+        List<Integer> lines = new ArrayList<>();
+        List<Map<String, String>> rows = new ArrayList<>();
+        evImportService.readRows(stream(csv), EVImportService.Format.CSV, (line, fields) -> {
+            lines.add(line);
+            rows.add(fields);
+        });
+
+        assertEquals(List.of(2, 3, 5), lines);
+        assertEquals("Sedan, with \"autopilot\"", rows.get(0).get("description"));
+        assertEquals("Two\nlines", rows.get(1).get("description"));
+        assertEquals("42000", rows.get(2).get("price"));
+        assertTrue(EVImportService.validate(rows.get(0)).isEmpty());
+    }
+
+    @Test
+    void testStripsByteOrderMarkFromCsvHeader() throws Exception {
+        String csv = "\uFEFFmodel,brand,description,price,rangeKm,batteryCapacityKwh,chargingTimeHours\r\n"
+                + "Model 3,Tesla,Sedan,45000,350,75,8\r\n";
+
+        List<Map<String, String>> rows = new ArrayList<>();
+        evImportService.readRows(stream(csv), EVImportService.Format.CSV, (line, fields) -> rows.add(fields));
+
+        assertEquals(1, rows.size());
+        assertEquals("Model 3", rows.get(0).get("model"));
+        assertTrue(EVImportService.validate(rows.get(0)).isEmpty());
+    }
+
+    @Test
+    void testReadsNdjsonAndFlagsMalformedLines() throws Exception {
+        String ndjson = "{\"model\":\"Leaf\",\"brand\":\"Nissan\",\"price\":32000,\"imageUrl\":null}\n"
+                + "\n"
+                + "{not json\n"
+                + "[1,2]\n";
+
+        List<Integer> lines = new ArrayList<>();
+        List<Map<String, String>> rows = new ArrayList<>();
+        evImportService.readRows(stream(ndjson), EVImportService.Format.NDJSON, (line, fields) -> {
+            lines.add(line);
+            rows.add(fields);
+        });
+
+        assertEquals(List.of(1, 3, 4), lines);
+        assertEquals("32000", rows.get(0).get("price"));
+        assertFalse(rows.get(0).containsKey("imageUrl"));
+        assertEquals(List.of("Malformed JSON"), EVImportService.validate(rows.get(1)));
+        assertEquals(List.of("Line is not a JSON object"), EVImportService.validate(rows.get(2)));
+    }
+
+    @Test
+    void testValidationMirrorsEntityConstraints() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("model", " ");
+        fields.put("brand", "Tesla");
+        fields.put("price", "-1");
+        fields.put("rangeKm", "abc");
+        fields.put("batteryCapacityKwh", "0");
+        fields.put("category", "truck");
+        fields.put("available", "maybe");
+
+        assertEquals(List.of(
+                "Model name is required",
+                "Description is required",
+                "Price must be positive",
+                "Range must be a whole number",
+                "Battery capacity must be positive",
+                "Charging time is required",
+                "Unknown category: truck",
+                "Available must be true or false"), EVImportService.validate(fields));
+    }
+
+    @Test
+    void testCopyLineQuotesTextAndNormalizesValues() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("model", "Model \"S\"");
+        fields.put("brand", "Tesla");
+        fields.put("description", "Fast, long range");
+        fields.put("price", "7.99E+4");
+        fields.put("rangeKm", " 600");
+        fields.put("batteryCapacityKwh", "100");
+        fields.put("chargingTimeHours", "10");
+        fields.put("category", "luxury");
+
+        assertEquals("7,\"Model \"\"S\"\"\",\"Tesla\",\"Fast, long range\",\"79900\",\"600\",\"100\",\"10\",,\"LUXURY\",\"true\"\n",
+                EVImportService.toCopyLine(7, fields));
+    }
+
+    private ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,113 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EV.EVCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EVLeaderboardServiceTest {
+
+    @Mock
+    private RatingAggregateService ratingAggregateService;
+
+    @Mock
+    private EVService evService;
+
+    @InjectMocks
+    private EVLeaderboardService leaderboardService;
+
+    private final Map<Long, long[]> counts = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(ratingAggregateService.getCounts(any())).thenAnswer(invocation ->
+            counts.getOrDefault(invocation.getArgument(0), new long[5]).clone());
+        when(ratingAggregateService.getTrackedEvIds()).thenAnswer(invocation -> counts.keySet());
+
+        // One lone 5-star review, a large mostly 4-star history, and a mixed record
+        counts.put(1L, new long[] {0, 0, 0, 0, 1});
+        counts.put(2L, new long[] {2, 3, 10, 150, 60});
+        counts.put(3L, new long[] {20, 10, 10, 10, 20});
+        ev(1L, EVCategory.SEDAN);
+        ev(2L, EVCategory.SUV);
+        ev(3L, EVCategory.SEDAN);
+        leaderboardService.initialize();
+    }
+
+    @Test
+    void testScoreFavoursVolumeOverSingleFiveStarReview() {
+        assertEquals(List.of(2L, 3L, 1L), evIds(leaderboardService.getPage(null, null, null)));
+        assertTrue(EVLeaderboardService.score(new long[] {0, 0, 0, 0, 1000})
+            > EVLeaderboardService.score(new long[] {0, 0, 0, 0, 10}));
+        verify(ratingAggregateService).addListener(any());
+    }
+
+    @Test
+    void testUpdateRepositionsOneEntry() {
+        counts.put(1L, new long[] {0, 0, 0, 0, 500});
+        leaderboardService.update(1L);
+        assertEquals(List.of(1L, 2L, 3L), evIds(leaderboardService.getPage(null, null, null)));
+
+        // All reviews deleted: the EV leaves the leaderboard
+        counts.put(2L, new long[5]);
+        leaderboardService.update(2L);
+        assertEquals(List.of(1L, 3L), evIds(leaderboardService.getPage(null, null, null)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCategoryPagesFollowCursor() {
+        Map<String, Object> first = leaderboardService.getPage(EVCategory.SEDAN, null, 1);
+        assertEquals(List.of(3L), evIds(first));
+        assertNotNull(first.get("nextCursor"));
+
+        Map<String, Object> second = leaderboardService.getPage(EVCategory.SEDAN, (String) first.get("nextCursor"), 1);
+        assertEquals(List.of(1L), evIds(second));
+        assertNull(second.get("nextCursor"));
+
+        assertThrows(IllegalArgumentException.class, () -> leaderboardService.getPage(null, "bogus", 1));
+    }
+
+    @Test
+    void testCategoryPageReadsOnlyItsOwnCategory() {
+        clearInvocations(evService);
+        assertEquals(List.of(2L), evIds(leaderboardService.getPage(EVCategory.SUV, null, null)));
+        verify(evService, never()).getEVById(1L);
+        verify(evService, never()).getEVById(3L);
+
+        // A category edited in the catalog moves the entry once the version changes
+        ev(3L, EVCategory.SUV);
+        when(evService.getCatalogVersion()).thenReturn(7L);
+        assertEquals(List.of(2L, 3L), evIds(leaderboardService.getPage(EVCategory.SUV, null, null)));
+        assertEquals(List.of(1L), evIds(leaderboardService.getPage(EVCategory.SEDAN, null, null)));
+    }
+
+    private void ev(Long id, EVCategory category) {
+        EV ev = new EV();
+        ev.setId(id);
+        ev.setCategory(category);
+        when(evService.getEVById(id)).thenReturn(Optional.of(ev));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> evIds(Map<String, Object> page) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> item : (List<Map<String, Object>>) page.get("items")) {
+            ids.add(((EV) item.get("ev")).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,95 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EVSearchIndexTest {
+
+    private EVSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EVSearchIndex();
+        index.rebuild(Arrays.asList(
+            createEV(1L, "Model 3", "Tesla", "An electric compact sedan with advanced autopilot."),
+            createEV(2L, "Model Y", "Tesla", "A compact electric SUV with a spacious interior."),
+            createEV(3L, "Leaf", "Nissan", "A reliable electric hatchback for daily commuting."),
+            createEV(4L, "Taycan", "Porsche", "A high-performance electric sports car."),
+            createEV(5L, "Mustang Mach-E", "Ford", "Iconic styling with electric performance and a Tesla rival.")
+        ));
+    }
+
+    @Test
+    void testFieldWeightsRankModelAndBrandHitsFirst() {
+        List<Long> results = index.search("tesla", 10);
+
+        // Brand matches outrank a mention in the description
+        assertEquals(Arrays.asList(1L, 2L, 5L), results);
+    }
+
+    @Test
+    void testPrefixMatching() {
+        assertEquals(List.of(4L), index.search("tayc", 10));
+        assertEquals(List.of(5L), index.search("musta", 10));
+    }
+
+    @Test
+    void testFuzzyMatchingForTypos() {
+        assertEquals(List.of(4L), index.search("tycan", 10));
+        assertEquals(List.of(3L), index.search("nisan", 10));
+    }
+
+    @Test
+    void testMultiTermQueryPrefersDocumentsMatchingMoreTerms() {
+        List<Long> results = index.search("compact suv", 10);
+
+        assertEquals(2L, results.get(0));
+        assertTrue(results.contains(1L));
+    }
+
+    @Test
+    void testIncrementalUpdateAndRemove() {
+        index.index(createEV(3L, "Ariya", "Nissan", "An electric crossover."));
+        assertTrue(index.search("leaf", 10).isEmpty());
+        assertEquals(List.of(3L), index.search("ariya", 10));
+
+        index.remove(4L);
+        assertTrue(index.search("taycan", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testBlankAndStopWordQueries() {
+        assertTrue(index.search("", 10).isEmpty());
+        assertTrue(index.search("the and of", 10).isEmpty());
+        assertEquals(2, index.search("electric", 2).size());
+    }
+
+    @Test
+    void testPrunedSearchKeepsTiesByIdAndFindsLateBetterMatch() {
+        // Enough equal-scoring vehicles for many windows, added in descending
+        // id order so the lowest ids sit in the last windows
+        List<EV> evs = new ArrayList<>();
+        for (long id = 3000; id >= 1; id--) {
+            evs.add(createEV(id, "Car " + id, "Brand", "A quiet electric hatchback."));
+        }
+        evs.add(createEV(5000L, "Car 5000", "Brand", "A hatchback hatchback."));
+        index.rebuild(evs);
+
+        assertEquals(List.of(5000L, 1L, 2L, 3L, 4L), index.search("hatchback", 5));
+        assertEquals(List.of(1L, 2L, 3L), index.search("quiet electric", 3));
+    }
+
+    private EV createEV(Long id, String model, String brand, String description) {
+        EV ev = new EV(model, brand, description, new BigDecimal("45000"), 350, 75, 8);
+        ev.setId(id);
+        return ev;
+    }
+}
@@ -0,0 +1,158 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV;
+import com.evcommerce.backend.model.EVSummary;
+import com.evcommerce.backend.repository.EVRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EVServiceTest {
+
+    @Mock
+    private EVRepository evRepository;
+
+    @InjectMocks
+    private EVService evService;
+
+    private List<EV> catalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        EV model3 = createEV(1L, "Model 3", "Tesla", "45000", 350, EV.EVCategory.SEDAN);
+        EV leaf = createEV(2L, "Leaf", "Nissan", "32000", 240, EV.EVCategory.COMPACT);
+        EV taycan = createEV(3L, "Taycan", "Porsche", "85000", 282, EV.EVCategory.SPORTS);
+        EV modelY = createEV(4L, "Model Y", "Tesla", "55000", 330, EV.EVCategory.SUV);
+        modelY.setAvailable(false);
+
+        catalog = new ArrayList<>(Arrays.asList(model3, leaf, taycan, modelY));
+        when(evRepository.findAll(any(Sort.class))).thenAnswer(invocation -> new ArrayList<>(catalog));
+    }
+
+    @Test
+    void testReadsAreServedFromSnapshot() {
+        assertEquals(3, evService.getAllEVs().size());
+        assertEquals(2, evService.getEVsByBrand("Tesla").size());
+        assertEquals(1, evService.getEVsByCategory(EV.EVCategory.SUV).size());
+        assertEquals("Model 3", evService.getEVById(1L).get().getModel());
+        assertTrue(evService.getEVById(99L).isEmpty());
+        assertEquals(Arrays.asList("Tesla", "Nissan", "Porsche"), evService.getAllBrands());
+
+        // Catalog is loaded once and never touched again by reads
+        verify(evRepository, times(1)).findAll(any(Sort.class));
+        verifyNoMoreInteractions(evRepository);
+    }
+
+    @Test
+    void testPriceAndRangeBoundsAreInclusive() {
+        List<EV> byPrice = evService.getEVsByPriceRange(new BigDecimal("32000"), new BigDecimal("55000.00"));
+        assertEquals(3, byPrice.size());
+        assertTrue(evService.getEVsByPriceRange(new BigDecimal("50000"), new BigDecimal("40000")).isEmpty());
+
+        List<EV> byRange = evService.getEVsByMinRange(330);
+        assertEquals(2, byRange.size());
+        assertTrue(byRange.stream().allMatch(ev -> ev.getRangeKm() >= 330));
+    }
+
+    @Test
+    void testWriteRebuildsSnapshot() {
+        CatalogSnapshot before = evService.getSnapshot();
+
+        EV ioniq = createEV(5L, "Ioniq 5", "Hyundai", "42000", 400, EV.EVCategory.SUV);
+        when(evRepository.save(any(EV.class))).thenAnswer(invocation -> {
+            catalog.add(ioniq);
+            return ioniq;
+        });
+
+        evService.createEV(ioniq);
+
+        CatalogSnapshot after = evService.getSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(after.getVersion(), evService.getCatalogVersion());
+        assertEquals(3, before.getAvailable().size());
+        assertEquals(4, after.getAvailable().size());
+        assertTrue(evService.getEVById(5L).isPresent());
+    }
+
+    @Test
+    void testSnapshotIsIsolatedFromEntityChanges() {
+        EV model3 = catalog.get(0);
+        evService.getSnapshot();
+
+        model3.setPrice(new BigDecimal("1"));
+
+        assertEquals(0, new BigDecimal("45000").compareTo(evService.getEVById(1L).get().getPrice()));
+        assertThrows(UnsupportedOperationException.class, () -> evService.getAllEVs().clear());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListingPagesFollowCursorInListingOrder() {
+        catalog.add(createEV(5L, "Ioniq 5", "Hyundai", "45000.00", 390, EV.EVCategory.SUV));
+
+        // Price order with the equal prices of ids 1 and 5 split across pages
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = evService.getPriceRangePage(
+                new BigDecimal("30000"), new BigDecimal("90000"), cursor, 2, null);
+            for (EV ev : (List<EV>) page.get("items")) {
+                ids.add(ev.getId());
+            }
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
+        assertEquals(Arrays.asList(2L, 1L, 5L, 4L, 3L), ids);
+
+        Map<String, Object> first = evService.getAvailablePage(null, 3, "summary");
+        assertEquals(3, first.get("size"));
+        assertTrue(((List<?>) first.get("items")).get(0) instanceof EVSummary);
+        Map<String, Object> second = evService.getAvailablePage((String) first.get("nextCursor"), 3, null);
+        assertEquals(5L, ((List<EV>) second.get("items")).get(0).getId());
+        assertNull(second.get("nextCursor"));
+
+        assertThrows(IllegalArgumentException.class, () -> evService.getBrandPage("Tesla", "not-a-cursor", null, null));
+    }
+
+    @Test
+    void testDuplicateBrandAndModelIsReportedAsExistingVehicle() {
+        evService.getSnapshot();
+        when(evRepository.save(any(EV.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement",
+                new SQLException("duplicate key", "23505"), EV.BRAND_MODEL_CONSTRAINT)));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> evService.createEV(createEV(null, "Model 3", "Tesla", "45000", 350, EV.EVCategory.SEDAN)));
+        assertEquals("Vehicle already exists", exception.getMessage());
+
+        when(evRepository.findById(2L)).thenReturn(Optional.of(catalog.get(1)));
+        exception = assertThrows(RuntimeException.class,
+            () -> evService.updateEV(2L, createEV(null, "Model 3", "Tesla", "45000", 350, EV.EVCategory.SEDAN)));
+        assertEquals("Vehicle already exists", exception.getMessage());
+        verify(evRepository, times(1)).findAll(any(Sort.class));
+    }
+
+    private EV createEV(Long id, String model, String brand, String price, int rangeKm, EV.EVCategory category) {
+        EV ev = new EV(model, brand, model + " description", new BigDecimal(price), rangeKm, 75, 8);
+        ev.setId(id);
+        ev.setCategory(category);
+        return ev;
+    }
+}
@@ -0,0 +1,193 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EVRatingSummary;
+import com.evcommerce.backend.repository.EVRatingSummaryRepository;
+import com.evcommerce.backend.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RatingAggregateServiceTest {
+
+    @Mock
+    private EVRatingSummaryRepository summaryRepository;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RatingAggregateService ratingAggregateService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeltasApplyOnCommitOnly() {
+        inTransaction(true, () -> ratingAggregateService.recordChange(1L, null, 5));
+        inTransaction(true, () -> ratingAggregateService.recordChange(1L, null, 3));
+        inTransaction(true, () -> ratingAggregateService.recordChange(1L, 5, 4));
+        inTransaction(false, () -> ratingAggregateService.recordChange(1L, null, 1));
+
+        Map<String, Object> stats = ratingAggregateService.getStats(1L);
+        assertEquals(2L, stats.get("reviewCount"));
+        assertEquals(3.5, stats.get("averageRating"));
+        Map<Integer, Long> distribution = (Map<Integer, Long>) stats.get("ratingDistribution");
+        assertEquals(1L, distribution.get(4));
+        assertEquals(0L, distribution.get(5));
+        assertEquals(0L, distribution.get(1));
+
+        // Every change, committed or not, went to the summary table as a delta upsert
+        verify(summaryRepository).applyDelta(1L, 0, 0, 0, 1, -1, -1, 0);
+        verify(summaryRepository, times(4)).applyDelta(eq(1L), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void testListenersHearCommittedChangesOnly() {
+        List<Long> changed = new ArrayList<>();
+        ratingAggregateService.addListener(changed::add);
+
+        inTransaction(false, () -> ratingAggregateService.recordChange(3L, null, 2));
+        assertTrue(changed.isEmpty());
+
+        inTransaction(true, () -> ratingAggregateService.recordChange(3L, null, 2));
+        assertEquals(List.of(3L), changed);
+        assertArrayEquals(new long[] {0, 1, 0, 0, 0}, ratingAggregateService.getCounts(3L));
+    }
+
+    @Test
+    void testConcurrentWritersAreCountedExactly() throws Exception {
+        int threads = 8;
+        int reviewsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int rating = t % 5 + 1;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < reviewsPerThread; i++) {
+                    inTransaction(true, () -> ratingAggregateService.recordChange(7L, null, rating));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals((long) threads * reviewsPerThread, ratingAggregateService.getStats(7L).get("reviewCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcileRepairsTableAndMemory() {
+        // The table is missing a 4-star review for EV 1 and has a stale row for EV 2
+        List<Object[]> raw = new ArrayList<>();
+        raw.add(new Object[] {1L, 5, 2L});
+        raw.add(new Object[] {1L, 4, 1L});
+        when(reviewRepository.getRatingCountsByEv()).thenReturn(raw);
+        EVRatingSummary ev1 = summary(1L, 0, 0, 0, 0, 2);
+        EVRatingSummary ev2 = summary(2L, 1, 0, 0, 0, 0);
+        when(summaryRepository.findAll()).thenReturn(List.of(ev1, ev2));
+
+        List<Object[]> ev1Counts = new ArrayList<>();
+        ev1Counts.add(new Object[] {5, 2L});
+        ev1Counts.add(new Object[] {4, 1L});
+        when(summaryRepository.lockByEvId(1L)).thenReturn(Optional.of(ev1));
+        when(summaryRepository.lockByEvId(2L)).thenReturn(Optional.of(ev2));
+        when(reviewRepository.getRatingCountsByEvId(1L)).thenReturn(ev1Counts);
+        when(reviewRepository.getRatingCountsByEvId(2L)).thenReturn(new ArrayList<>());
+
+        Map<String, Object> result = ratingAggregateService.reconcile();
+
+        assertEquals(2, result.get("tableRepairs"));
+        assertEquals(1L, ev1.getCount4());
+        assertEquals(14L, ev1.getRatingSum());
+        assertEquals(3L, ev1.getReviewCount());
+        assertEquals(0L, ev2.getReviewCount());
+        verify(summaryRepository).save(ev1);
+        verify(summaryRepository).save(ev2);
+
+        // Memory adopted the repaired rows
+        assertEquals(3L, ratingAggregateService.getStats(1L).get("reviewCount"));
+        assertEquals(0L, ratingAggregateService.getStats(2L).get("reviewCount"));
+
+        // A committed delta the table never received is corrected on the next run
+        inTransaction(true, () -> ratingAggregateService.recordChange(1L, null, 1));
+        assertEquals(4L, ratingAggregateService.getStats(1L).get("reviewCount"));
+        ratingAggregateService.reconcile();
+        Map<Integer, Long> distribution =
+                (Map<Integer, Long>) ratingAggregateService.getStats(1L).get("ratingDistribution");
+        assertEquals(0L, distribution.get(1));
+        assertEquals(3L, ratingAggregateService.getStats(1L).get("reviewCount"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchStatsQueryOnlyForMisses() {
+        inTransaction(true, () -> ratingAggregateService.recordChange(1L, null, 4));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {3L, 2, 3L});
+        when(reviewRepository.getRatingCountsByEvIds(List.of(3L, 2L))).thenReturn(rows);
+
+        Map<Long, Map<String, Object>> stats = ratingAggregateService.getStats(List.of(3L, 1L, 2L));
+
+        assertEquals(List.of(3L, 1L, 2L), new ArrayList<>(stats.keySet()));
+        assertEquals(1L, stats.get(1L).get("reviewCount"));
+        assertEquals(4.0, stats.get(1L).get("averageRating"));
+        assertEquals(3L, ((Map<Integer, Long>) stats.get(3L).get("ratingDistribution")).get(2));
+        assertEquals(0L, stats.get(2L).get("reviewCount"));
+        verify(reviewRepository, times(1)).getRatingCountsByEvIds(any());
+
+        // Nothing to look up when every EV has counters
+        ratingAggregateService.getStats(List.of(1L));
+        verify(reviewRepository, times(1)).getRatingCountsByEvIds(any());
+    }
+
+    // Runs the action with transaction synchronization active, then completes it
+    private void inTransaction(boolean commit, Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(commit
+                        ? TransactionSynchronization.STATUS_COMMITTED
+                        : TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private EVRatingSummary summary(Long evId, long c1, long c2, long c3, long c4, long c5) {
+        EVRatingSummary summary = new EVRatingSummary(evId);
+        summary.setCount1(c1);
+        summary.setCount2(c2);
+        summary.setCount3(c3);
+        summary.setCount4(c4);
+        summary.setCount5(c5);
+        summary.setReviewCount(c1 + c2 + c3 + c4 + c5);
+        summary.setRatingSum(c1 + 2 * c2 + 3 * c3 + 4 * c4 + 5 * c5);
+        return summary;
+    }
+}
@@ -0,0 +1,145 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.User;
+import com.evcommerce.backend.repository.ReviewRepository;
+import com.evcommerce.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.jpa.repository.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReviewModerationServiceTest {
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RatingAggregateService ratingAggregateService;
+
+    @InjectMocks
+    private ReviewModerationService moderationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        User admin = new User("admin", "admin@example.com", "password123");
+        admin.setId(9L);
+        admin.setRole(User.UserRole.ADMIN);
+        User customer = new User("customer", "customer@example.com", "password123");
+        customer.setId(1L);
+        when(userRepository.findById(9L)).thenReturn(Optional.of(admin));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(customer));
+    }
+
+    @Test
+    void testVerifyBatchIsOneUpdateAndOneAdminCheck() {
+        when(reviewRepository.verifyAll(eq(Set.of(1L, 2L, 3L)), any())).thenReturn(2);
+
+        Map<String, Object> result = moderationService.verify(9L, Arrays.asList(1L, 2L, 2L, null, 3L));
+
+        assertEquals(3, result.get("requested"));
+        assertEquals(2, result.get("verified"));
+        verify(userRepository, times(1)).findById(9L);
+        verify(reviewRepository, times(1)).verifyAll(any(), any());
+        verify(reviewRepository, never()).save(any());
+    }
+
+    @Test
+    void testRejectBatchRecordsOneDeltaPerEV() {
+        List<Object[]> ratings = new ArrayList<>();
+        ratings.add(new Object[] {1L, 5});
+        ratings.add(new Object[] {1L, 5});
+        ratings.add(new Object[] {1L, 2});
+        ratings.add(new Object[] {2L, 3});
+        when(reviewRepository.lockRatingsByIds(any())).thenReturn(ratings);
+        when(reviewRepository.deleteAllByIds(any())).thenReturn(4);
+
+        Map<String, Object> result = moderationService.reject(9L, List.of(10L, 11L, 12L, 13L, 14L));
+
+        assertEquals(5, result.get("requested"));
+        assertEquals(4, result.get("rejected"));
+        verify(ratingAggregateService).recordDeltas(1L, new long[] {0, -1, 0, 0, -2});
+        verify(ratingAggregateService).recordDeltas(2L, new long[] {0, 0, -1, 0, 0});
+        verifyNoMoreInteractions(ratingAggregateService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRejectLeavesVerifiedReviewsInPlace() throws Exception {
+        // Reviews as id -> [evId, rating, verified], filtered the way both queries filter
+        Map<Long, Object[]> reviews = new HashMap<>();
+        reviews.put(10L, new Object[] {1L, 5, false});
+        reviews.put(11L, new Object[] {1L, 4, true});
+        when(reviewRepository.lockRatingsByIds(any())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : (Collection<Long>) invocation.getArgument(0)) {
+                Object[] review = reviews.get(id);
+                if (review != null && !(Boolean) review[2]) {
+                    rows.add(new Object[] {review[0], review[1]});
+                }
+            }
+            return rows;
+        });
+        when(reviewRepository.deleteAllByIds(any())).thenAnswer(invocation -> {
+            int deleted = 0;
+            for (Long id : (Collection<Long>) invocation.getArgument(0)) {
+                Object[] review = reviews.get(id);
+                if (review != null && !(Boolean) review[2]) {
+                    reviews.remove(id);
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+
+        Map<String, Object> result = moderationService.reject(9L, List.of(10L, 11L));
+
+        assertEquals(2, result.get("requested"));
+        assertEquals(1, result.get("rejected"));
+        assertTrue(reviews.containsKey(11L));
+        assertFalse(reviews.containsKey(10L));
+        verify(ratingAggregateService).recordDeltas(1L, new long[] {0, 0, 0, 0, -1});
+
+        // The filter above stands in for the one both repository queries apply
+        String lock = ReviewRepository.class.getMethod("lockRatingsByIds", Collection.class)
+            .getAnnotation(Query.class).value();
+        String delete = ReviewRepository.class.getMethod("deleteAllByIds", Collection.class)
+            .getAnnotation(Query.class).value();
+        assertTrue(lock.contains("AND verified = false"));
+        assertTrue(delete.contains("AND r.verified = false"));
+    }
+
+    @Test
+    void testModerationRequiresAdminAndBoundedBatch() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> moderationService.verify(1L, List.of(1L)));
+        assertEquals("Only admins can moderate reviews", exception.getMessage());
+
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 0; id <= ReviewModerationService.MAX_BATCH_SIZE; id++) {
+            tooMany.add(id);
+        }
+        assertThrows(IllegalArgumentException.class, () -> moderationService.reject(9L, tooMany));
+        assertThrows(IllegalArgumentException.class, () -> moderationService.verify(9L, List.of()));
+        verifyNoInteractions(reviewRepository);
+    }
+}
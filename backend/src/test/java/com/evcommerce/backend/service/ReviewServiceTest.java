@@ -6,18 +6,36 @@ import com.evcommerce.backend.model.User;
 import com.evcommerce.backend.repository.ReviewRepository;
 import com.evcommerce.backend.repository.EVRepository;
 import com.evcommerce.backend.repository.UserRepository;
+import com.evcommerce.backend.repository.ReviewRepositoryCustom.ReviewFeedSort;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Optional;
 import java.util.List;
+import java.util.Map;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 class ReviewServiceTest {
@@ -31,6 +49,18 @@ class ReviewServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private EVService evService;
+
+    @Mock
+    private RatingAggregateService ratingAggregateService;
+
+    @Mock
+    private TopReviewService topReviewService;
+
+    @Mock
+    private ReviewSpamDetector reviewSpamDetector;
+
     @InjectMocks
     private ReviewService reviewService;
 
@@ -41,6 +71,8 @@ class ReviewServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(reviewSpamDetector.screen(any(), any()))
+            .thenReturn(new ReviewSpamDetector.Screening(new long[ReviewSpamDetector.NUM_HASHES], null));
         
         // Setup test data
         testUser = new User();
@@ -71,9 +103,8 @@ class ReviewServiceTest {
     @Test
     void testCreateReview() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(evRepository.findById(1L)).thenReturn(Optional.of(testEV));
-        when(reviewRepository.findByUserAndEv(testUser, testEV)).thenReturn(Optional.empty());
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
         when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
 
         // Act
@@ -84,42 +115,110 @@ class ReviewServiceTest {
         assertEquals(testReview.getTitle(), result.getTitle());
         assertEquals(testReview.getRating(), result.getRating());
         verify(reviewRepository).save(any(Review.class));
+        // No lookups before the insert
+        verify(userRepository, never()).findById(any());
+        verify(reviewRepository, never()).findByUserAndEv(any(), any());
+    }
+
+    @Test
+    void testCreateReviewFlagsNearDuplicate() {
+        ReviewSpamDetector.Screening screening =
+            new ReviewSpamDetector.Screening(new long[ReviewSpamDetector.NUM_HASHES], 77L);
+        when(reviewSpamDetector.screen(testReview.getTitle(), testReview.getContent())).thenReturn(screening);
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> {
+            Review review = invocation.getArgument(0);
+            review.setId(5L);
+            return review;
+        });
+
+        Review result = reviewService.createReview(1L, 1L, testReview);
+
+        assertTrue(result.isFlagged());
+        verify(reviewSpamDetector).indexOnCommit(5L, screening);
     }
 
     @Test
     void testCreateReview_UserNotFound() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.save(any(Review.class))).thenThrow(violation("fk_reviews_user", "23503"));
 
         // Act & Assert
-        assertThrows(RuntimeException.class, () -> {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             reviewService.createReview(1L, 1L, testReview);
         });
+        assertEquals("User not found", exception.getMessage());
     }
 
     @Test
     void testCreateReview_EVNotFound() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(evRepository.findById(1L)).thenReturn(Optional.empty());
+        when(evService.getEVById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(RuntimeException.class, () -> {
             reviewService.createReview(1L, 1L, testReview);
         });
+        verify(reviewRepository, never()).save(any());
     }
 
     @Test
     void testCreateReview_AlreadyReviewed() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(evRepository.findById(1L)).thenReturn(Optional.of(testEV));
-        when(reviewRepository.findByUserAndEv(testUser, testEV)).thenReturn(Optional.of(testReview));
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.save(any(Review.class))).thenThrow(violation(Review.USER_EV_CONSTRAINT, "23505"));
 
         // Act & Assert
-        assertThrows(RuntimeException.class, () -> {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             reviewService.createReview(1L, 1L, testReview);
         });
+        assertEquals("You have already reviewed this vehicle", exception.getMessage());
+        verify(ratingAggregateService, never()).recordChange(any(), any(), any());
+    }
+
+    @Test
+    void testParallelDuplicateSubmissionsCreateOneReview() throws Exception {
+        // The database accepts the first insert for (user, EV) and rejects the rest
+        AtomicBoolean inserted = new AtomicBoolean();
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> {
+            if (!inserted.compareAndSet(false, true)) {
+                throw violation(Review.USER_EV_CONSTRAINT, "23505");
+            }
+            return invocation.getArgument(0);
+        });
+
+        int submissions = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(submissions);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < submissions; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    reviewService.createReview(1L, 1L, testReview);
+                    return "created";
+                } catch (RuntimeException e) {
+                    return e.getMessage();
+                }
+            }));
+        }
+        start.countDown();
+        int created = 0;
+        for (Future<String> result : results) {
+            String outcome = result.get();
+            if ("created".equals(outcome)) {
+                created++;
+            } else {
+                assertEquals("You have already reviewed this vehicle", outcome);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, created);
+        verify(ratingAggregateService, times(1)).recordChange(1L, null, 5);
     }
 
     @Test
@@ -172,4 +271,172 @@ class ReviewServiceTest {
         // Assert
         verify(reviewRepository).delete(testReview);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testGetReviewStatsByEvIsServedFromAggregates() {
+        Map<String, Object> aggregate = new HashMap<>();
+        aggregate.put("reviewCount", 1_000_000L);
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(ratingAggregateService.getStats(1L)).thenReturn(aggregate);
+
+        Map<String, Object> stats = reviewService.getReviewStatsByEv(1L);
+
+        // No SQL at all, whatever the review volume
+        assertSame(aggregate, stats);
+        verifyNoInteractions(reviewRepository, evRepository, userRepository);
+    }
+
+    @Test
+    void testReviewWritesRecordRatingDeltas() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        reviewService.createReview(1L, 1L, testReview);
+        verify(ratingAggregateService).recordChange(1L, null, 5);
+
+        Review changed = new Review();
+        changed.setTitle("Updated Review");
+        changed.setContent("Updated content");
+        changed.setRating(2);
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+        reviewService.updateReview(1L, 1L, changed);
+        verify(ratingAggregateService).recordChange(1L, 5, 2);
+
+        reviewService.deleteReview(1L, 1L);
+        verify(ratingAggregateService).recordChange(1L, 2, null);
+    }
+
+    @Test
+    void testGetReviewStatsByEvNotFound() {
+        when(evService.getEVById(99L)).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> reviewService.getReviewStatsByEv(99L));
+
+        assertEquals("EV not found", exception.getMessage());
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReviewFeedByEvPagesByRatingKeyset() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000);
+        List<Review> rows = new ArrayList<>();
+        for (long id = 10; id > 7; id--) {
+            Review review = new Review();
+            review.setId(id);
+            review.setRating(4);
+            review.setCreatedAt(createdAt);
+            rows.add(review);
+        }
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.findEvFeedPage(1L, false, ReviewFeedSort.RATING, null, null, null, 3))
+            .thenReturn(rows);
+
+        Map<String, Object> first = reviewService.getReviewFeedByEv(1L, "rating", false, null, 2);
+
+        assertEquals(2, first.get("size"));
+        assertEquals(2, ((List<Review>) first.get("items")).size());
+        String cursor = (String) first.get("nextCursor");
+        assertNotNull(cursor);
+
+        // The next page starts strictly after the last review's (rating, createdAt, id)
+        when(reviewRepository.findEvFeedPage(1L, false, ReviewFeedSort.RATING, 4L, createdAt, 9L, 3))
+            .thenReturn(rows.subList(2, 3));
+        Map<String, Object> second = reviewService.getReviewFeedByEv(1L, "rating", false, cursor, 2);
+
+        assertEquals(1, second.get("size"));
+        assertNull(second.get("nextCursor"));
+        verify(reviewRepository, never()).findByEvOrderByRatingDesc(any());
+    }
+
+    @Test
+    void testReviewFeedByEvPagesByHelpfulKeyset() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30);
+        List<Review> rows = new ArrayList<>();
+        for (long id = 3; id > 0; id--) {
+            Review review = new Review();
+            review.setId(id);
+            review.setHelpfulCount(100 * id);
+            review.setCreatedAt(createdAt);
+            rows.add(review);
+        }
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(reviewRepository.findEvFeedPage(1L, true, ReviewFeedSort.HELPFUL, null, null, null, 3))
+            .thenReturn(rows);
+
+        Map<String, Object> first = reviewService.getReviewFeedByEv(1L, "helpful", true, null, 2);
+
+        // The cursor carries the helpful count of the last review on the page
+        when(reviewRepository.findEvFeedPage(1L, true, ReviewFeedSort.HELPFUL, 200L, createdAt, 2L, 3))
+            .thenReturn(rows.subList(2, 3));
+        Map<String, Object> second = reviewService.getReviewFeedByEv(1L, "helpful", true, (String) first.get("nextCursor"), 2);
+
+        assertEquals(1, second.get("size"));
+        assertNull(second.get("nextCursor"));
+    }
+
+    @Test
+    void testReviewFeedRejectsBadInput() {
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.getReviewFeedByEv(1L, "popular", false, null, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.getReviewFeedByEv(1L, "newest", false, "not-a-cursor", null));
+        // A rating cursor carries three keys and is not accepted by the newest-first feed
+        String ratingCursor = PageCursor.encode(5, LocalDateTime.of(2024, 1, 1, 0, 0), 3L);
+        assertThrows(IllegalArgumentException.class,
+            () -> reviewService.getReviewFeedByUser(1L, ratingCursor, null));
+        verify(reviewRepository, never()).findUserFeedPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testReviewFeedByUserCapsPageSize() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(reviewRepository.findUserFeedPage(1L, null, null, 101)).thenReturn(new ArrayList<>());
+
+        Map<String, Object> page = reviewService.getReviewFeedByUser(1L, null, 5000);
+
+        assertEquals(0, page.get("size"));
+        assertNull(page.get("nextCursor"));
+        verify(reviewRepository).findUserFeedPage(1L, null, null, 101);
+    }
+
+    @Test
+    void testGetReviewStatsByEvsSkipsUnknownAndDuplicateIds() {
+        Map<Long, Map<String, Object>> aggregates = new HashMap<>();
+        when(evService.getEVById(1L)).thenReturn(Optional.of(testEV));
+        when(evService.getEVById(99L)).thenReturn(Optional.empty());
+        when(ratingAggregateService.getStats(anyCollection())).thenReturn(aggregates);
+
+        assertSame(aggregates, reviewService.getReviewStatsByEvs(Arrays.asList(1L, 99L, 1L)));
+
+        verify(ratingAggregateService).getStats(argThat((Collection<Long> ids) -> ids.size() == 1 && ids.contains(1L)));
+        verifyNoInteractions(reviewRepository);
+        assertThrows(IllegalArgumentException.class, () -> reviewService.getReviewStatsByEvs(List.of()));
+    }
+
+    @Test
+    void testGetReviewStatsByEvsRejectsOversizedBatchBeforeLookups() {
+        List<Long> evIds = new ArrayList<>();
+        for (long id = 1; id <= ReviewService.MAX_STATS_BATCH + 1; id++) {
+            evIds.add(id);
+            evIds.add(id);
+        }
+        assertThrows(IllegalArgumentException.class, () -> reviewService.getReviewStatsByEvs(evIds));
+        verifyNoInteractions(evService, ratingAggregateService);
+
+        // Duplicates count once, so a full batch repeated is still accepted
+        when(evService.getEVById(anyLong())).thenReturn(Optional.empty());
+        evIds.subList(evIds.size() - 2, evIds.size()).clear();
+        assertTrue(reviewService.getReviewStatsByEvs(evIds).isEmpty());
+    }
+
+    private DataIntegrityViolationException violation(String constraint, String sqlState) {
+        SQLException cause = new SQLException("constraint violated", sqlState);
+        return new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement", cause, constraint));
+    }
+}
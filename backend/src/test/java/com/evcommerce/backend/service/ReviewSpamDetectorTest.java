@@ -0,0 +1,75 @@
+package com.evcommerce.backend.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewSpamDetectorTest {
+
+    private static final String SPAM_TITLE = "Best deal ever";
+    private static final String SPAM_CONTENT =
+        "Amazing vehicle, visit our site for huge discounts on chargers and accessories today only!";
+
+    @Test
+    void testRebuiltIndexFlagsNearCopiesOnly() {
+        ReviewSpamDetector detector = new ReviewSpamDetector();
+        List<Object[]> rows = new ArrayList<>();
+        Random random = new Random(42);
+        for (long id = 1; id <= 20_000; id++) {
+            rows.add(new Object[] {id, "Review " + id, randomText(random, 30)});
+        }
+        rows.add(new Object[] {20_001L, SPAM_TITLE, SPAM_CONTENT});
+
+        assertEquals(20_001, detector.rebuild(rows.stream()));
+
+        // Case, punctuation and a changed word do not hide the copy
+        ReviewSpamDetector.Screening copy = detector.screen("BEST DEAL EVER!!",
+            "Amazing vehicle - visit our site for huge discounts on chargers and accessories today!");
+        assertTrue(copy.isNearDuplicate());
+        assertEquals(20_001L, copy.nearDuplicateOf());
+
+        ReviewSpamDetector.Screening original = detector.screen("Quiet commuter",
+            "Comfortable seats, the range estimate is honest and charging at home overnight is easy.");
+        assertFalse(original.isNearDuplicate());
+    }
+
+    @Test
+    void testAddedReviewsAreFoundBeforeAndAfterMerge() {
+        ReviewSpamDetector detector = new ReviewSpamDetector();
+        detector.rebuild(new ArrayList<Object[]>().stream());
+        Random random = new Random(7);
+
+        String first = randomText(random, 25);
+        detector.indexOnCommit(1L, detector.screen("First review", first));
+        assertEquals(1L, detector.screen("First review", first).nearDuplicateOf());
+
+        // Enough additions to push the first one out of the pending buffer into the sorted bands
+        for (long id = 2; id <= 5000; id++) {
+            String text = randomText(random, 25);
+            detector.indexOnCommit(id, detector.screen("Review " + id, text));
+        }
+        assertEquals(5000, detector.getIndexedCount());
+        assertEquals(1L, detector.screen("First review", first).nearDuplicateOf());
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("great car 10 10", ReviewSpamDetector.normalize("  Great   CAR!!! 10/10 "));
+        assertArrayEquals(ReviewSpamDetector.minHashes("a", "b"), ReviewSpamDetector.minHashes("A", "B!"));
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            int length = 3 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+}
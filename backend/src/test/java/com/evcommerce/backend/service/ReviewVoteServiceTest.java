@@ -0,0 +1,221 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.ReviewVote;
+import com.evcommerce.backend.repository.ReviewVoteRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReviewVoteServiceTest {
+
+    @Mock
+    private ReviewVoteRepository voteRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ReviewVoteService voteService;
+
+    // Sum of the flushed [helpful, unhelpful] deltas per review
+    private final Map<Long, long[]> flushed = new ConcurrentHashMap<>();
+
+    private final LongAdder flushStatements = new LongAdder();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        List<Object[]> stored = new ArrayList<>();
+        stored.add(new Object[] {10L, 2L});
+        when(voteRepository.getStoredCounts(anyLong())).thenReturn(stored);
+        when(jdbcTemplate.batchUpdate(eq(ReviewVoteService.FLUSH_SQL), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                long[] total = flushed.computeIfAbsent((Long) row[2], k -> new long[2]);
+                synchronized (total) {
+                    total[0] += (Long) row[0];
+                    total[1] += (Long) row[1];
+                }
+            }
+            flushStatements.add(rows.size());
+            return new int[rows.size()];
+        });
+    }
+
+    @Test
+    void testCommittedVotesFlushAsOneRowUpdate() {
+        when(voteRepository.insertIfAbsent(eq(5L), anyLong(), anyBoolean())).thenReturn(1);
+
+        inTransaction(true, () -> voteService.vote(5L, 1L, true));
+        inTransaction(true, () -> voteService.vote(5L, 2L, true));
+        inTransaction(false, () -> voteService.vote(5L, 3L, true));
+        AtomicReference<Map<String, Object>> last = new AtomicReference<>();
+        inTransaction(true, () -> last.set(voteService.vote(5L, 4L, false)));
+
+        // Stored totals plus the votes not flushed yet, including this one
+        assertEquals(12L, last.get().get("helpfulCount"));
+        assertEquals(3L, last.get().get("unhelpfulCount"));
+        verifyNoInteractions(jdbcTemplate);
+
+        assertEquals(1, voteService.flush());
+        assertArrayEquals(new long[] {2, 1}, flushed.get(5L));
+        assertArrayEquals(new long[2], voteService.getPendingCounts(5L));
+        assertEquals(0, voteService.flush());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testRepeatedAndSwitchedVotes() {
+        when(voteRepository.insertIfAbsent(anyLong(), anyLong(), anyBoolean())).thenReturn(0);
+        when(voteRepository.switchVote(5L, 1L, false)).thenReturn(1);
+        when(voteRepository.switchVote(5L, 1L, true)).thenReturn(0);
+
+        // The same vote again changes nothing; switching moves one count across
+        voteService.vote(5L, 1L, true);
+        assertArrayEquals(new long[2], voteService.getPendingCounts(5L));
+        voteService.vote(5L, 1L, false);
+        assertArrayEquals(new long[] {-1, 1}, voteService.getPendingCounts(5L));
+
+        when(voteRepository.insertIfAbsent(6L, 1L, true)).thenThrow(violation(ReviewVote.REVIEW_FOREIGN_KEY));
+        when(voteRepository.insertIfAbsent(5L, 99L, true)).thenThrow(violation(ReviewVote.USER_FOREIGN_KEY));
+        assertEquals("Review not found",
+            assertThrows(RuntimeException.class, () -> voteService.vote(6L, 1L, true)).getMessage());
+        assertEquals("User not found",
+            assertThrows(RuntimeException.class, () -> voteService.vote(5L, 99L, true)).getMessage());
+    }
+
+    @Test
+    void testDeletedVoterIsTakenBackOnlyOnCommit() {
+        List<Object[]> votes = new ArrayList<>();
+        votes.add(new Object[] {5L, true});
+        votes.add(new Object[] {7L, false});
+        when(voteRepository.lockVotesByUser(3L)).thenReturn(votes);
+
+        inTransaction(false, () -> voteService.retractVotesOf(3L));
+        assertArrayEquals(new long[2], voteService.getPendingCounts(5L));
+
+        inTransaction(true, () -> voteService.retractVotesOf(3L));
+        assertArrayEquals(new long[] {-1, 0}, voteService.getPendingCounts(5L));
+        assertArrayEquals(new long[] {0, -1}, voteService.getPendingCounts(7L));
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltasForNextRun() {
+        when(voteRepository.insertIfAbsent(anyLong(), anyLong(), anyBoolean())).thenReturn(1);
+        voteService.vote(5L, 1L, true);
+        voteService.vote(7L, 1L, false);
+        doThrow(new RuntimeException("connection lost")).doNothing()
+            .when(transactionManager).commit(any());
+
+        assertEquals(0, voteService.flush());
+        assertArrayEquals(new long[] {1, 0}, voteService.getPendingCounts(5L));
+
+        flushed.clear();
+        assertEquals(2, voteService.flush());
+        assertArrayEquals(new long[] {1, 0}, flushed.get(5L));
+        assertArrayEquals(new long[] {0, 1}, flushed.get(7L));
+    }
+
+    @Test
+    void testConcurrentVotesWithConcurrentFlushesLoseNothing() throws Exception {
+        when(voteRepository.insertIfAbsent(anyLong(), anyLong(), anyBoolean())).thenReturn(1);
+        int voters = 8;
+        int votesEach = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean voting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(voters + 1);
+
+        // A hot review (1) takes most votes; the rest spread over a few others
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < voters; t++) {
+            long thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < votesEach; i++) {
+                    long reviewId = i % 4 == 0 ? 2 + (i + thread) % 5 : 1;
+                    voteService.vote(reviewId, thread * votesEach + i, i % 3 != 0);
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            while (voting.get()) {
+                voteService.flush();
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        voting.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        voteService.flush();
+
+        long helpful = 0;
+        long unhelpful = 0;
+        for (long[] total : flushed.values()) {
+            helpful += total[0];
+            unhelpful += total[1];
+        }
+        assertEquals(voters * votesEach, helpful + unhelpful);
+        assertEquals(voters * (votesEach - (votesEach + 2) / 3), helpful);
+        // The hot review was written once per flush, not once per vote
+        assertTrue(flushStatements.sum() < voters * votesEach / 2);
+    }
+
+    private void inTransaction(boolean commit, Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (commit) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(commit
+                        ? TransactionSynchronization.STATUS_COMMITTED
+                        : TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private DataIntegrityViolationException violation(String constraint) {
+        SQLException cause = new SQLException("constraint violated", "23503");
+        return new DataIntegrityViolationException("could not execute statement",
+            new ConstraintViolationException("could not execute statement", cause, constraint));
+    }
+}
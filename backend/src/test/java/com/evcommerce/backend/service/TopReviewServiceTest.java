@@ -0,0 +1,106 @@
+package com.evcommerce.backend.service;
+
+import com.evcommerce.backend.model.EV.EVCategory;
+import com.evcommerce.backend.model.Review;
+import com.evcommerce.backend.repository.ReviewRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class TopReviewServiceTest {
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private EVService evService;
+
+    @InjectMocks
+    private TopReviewService topReviewService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(evService.getAllBrands()).thenReturn(List.of("Tesla", "Rivian"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        topReviewService.shutdown();
+    }
+
+    @Test
+    void testTopReviewsAreBoundedAndCachedPerScope() {
+        when(reviewRepository.findTopReviews(4, "Tesla", EVCategory.SEDAN, TopReviewService.MAX_TOP_REVIEWS))
+            .thenReturn(reviews(1, 30));
+
+        List<Review> first = topReviewService.getTopReviews(4, "tesla", EVCategory.SEDAN, 5);
+        List<Review> second = topReviewService.getTopReviews(4, "TESLA", EVCategory.SEDAN, 500);
+
+        assertEquals(5, first.size());
+        assertEquals(1L, first.get(0).getId());
+        assertEquals(30, second.size());
+        verify(reviewRepository, times(1)).findTopReviews(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testRefreshReplacesCachedList() throws Exception {
+        when(reviewRepository.findTopReviews(4, null, null, TopReviewService.MAX_TOP_REVIEWS))
+            .thenReturn(reviews(1, 3))
+            .thenReturn(reviews(100, 3));
+        assertEquals(1L, topReviewService.getTopReviews(4, null, null, null).get(0).getId());
+
+        topReviewService.refreshAll();
+
+        // The refresh runs in the background; readers see the old list until it lands
+        for (int i = 0; i < 100 && topReviewService.getTopReviews(4, null, null, null).get(0).getId() != 100L; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(100L, topReviewService.getTopReviews(4, null, null, null).get(0).getId());
+        verify(reviewRepository, times(2)).findTopReviews(4, null, null, TopReviewService.MAX_TOP_REVIEWS);
+    }
+
+    @Test
+    void testHomepageScopeIsNeverEvictedWhenIdle() {
+        when(reviewRepository.findTopReviews(anyInt(), any(), any(), anyInt())).thenReturn(reviews(1, 3));
+        topReviewService.warmUp();
+        topReviewService.getTopReviews(3, null, null, null);
+
+        // Every scope is idle: the homepage scope is refreshed, the other dropped
+        ReflectionTestUtils.setField(topReviewService, "idleExpiryMillis", -60_000L);
+        topReviewService.refreshAll();
+
+        verify(reviewRepository, timeout(2000).times(2)).findTopReviews(4, null, null, TopReviewService.MAX_TOP_REVIEWS);
+        topReviewService.getTopReviews(3, null, null, null);
+        verify(reviewRepository, times(2)).findTopReviews(3, null, null, TopReviewService.MAX_TOP_REVIEWS);
+    }
+
+    @Test
+    void testUnknownBrandAndBadRatingNeverQuery() {
+        assertTrue(topReviewService.getTopReviews(4, "NoSuchBrand", null, null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> topReviewService.getTopReviews(6, null, null, null));
+        verifyNoInteractions(reviewRepository);
+    }
+
+    private List<Review> reviews(long firstId, int count) {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Review review = new Review();
+            review.setId(firstId + i);
+            review.setRating(5);
+            reviews.add(review);
+        }
+        return reviews;
+    }
+}
@@ -1,11 +1,12 @@
 import React, { useState, useEffect } from 'react';
 import { useNavigate, useLocation } from 'react-router-dom';
 import axios from 'axios';
-import { createApiUrl, API_ENDPOINTS } from '../config/api';
+import { createApiUrl, API_ENDPOINTS, fetchPage } from '../config/api';
 import './EVComparison.css';
 
 const EVComparison = () => {
   const [evs, setEvs] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [selectedEV1, setSelectedEV1] = useState(null);
   const [selectedEV2, setSelectedEV2] = useState(null);
   const [loading, setLoading] = useState(true);
@@ -16,7 +17,7 @@ const EVComparison = () => {
   const location = useLocation();
 
   useEffect(() => {
-    fetchEVs();
+    fetchEVs(null);
   }, []);
 
   useEffect(() => {
@@ -25,17 +26,13 @@ const EVComparison = () => {
     const ev1Id = params.get('ev1');
     const ev2Id = params.get('ev2');
     
-    if (evs.length > 0) {
-      if (ev1Id) {
-        const ev1 = evs.find(e => e.id === parseInt(ev1Id));
-        if (ev1) setSelectedEV1(ev1);
-      }
-      if (ev2Id) {
-        const ev2 = evs.find(e => e.id === parseInt(ev2Id));
-        if (ev2) setSelectedEV2(ev2);
-      }
+    if (ev1Id) {
+      selectEV(ev1Id, setSelectedEV1);
     }
-  }, [evs, location.search]);
+    if (ev2Id) {
+      selectEV(ev2Id, setSelectedEV2);
+    }
+  }, [location.search]);
 
   useEffect(() => {
     if (selectedEV1) {
@@ -49,10 +46,12 @@ const EVComparison = () => {
     }
   }, [selectedEV2]);
 
-  const fetchEVs = async () => {
+  // The selects list one page of summaries at a time
+  const fetchEVs = async (cursor) => {
     try {
-      const response = await axios.get(createApiUrl(API_ENDPOINTS.EVS));
-      setEvs(response.data);
+      const page = await fetchPage(API_ENDPOINTS.EVS, cursor);
+      setEvs(prev => (cursor ? [...prev, ...page.items] : page.items));
+      setNextCursor(page.nextCursor);
       setLoading(false);
     } catch (err) {
       setError('Failed to fetch electric vehicles');
@@ -60,6 +59,20 @@ const EVComparison = () => {
     }
   };
 
+  // The comparison needs every specification, so a chosen vehicle is loaded in full
+  const selectEV = async (evId, setSelected) => {
+    if (!evId) {
+      setSelected(null);
+      return;
+    }
+    try {
+      const response = await axios.get(createApiUrl(`${API_ENDPOINTS.EVS}/${evId}`));
+      setSelected(response.data);
+    } catch (err) {
+      setSelected(null);
+    }
+  };
+
   const fetchReviewStats = async (evId, setStats) => {
     try {
       const response = await axios.get(createApiUrl(`${API_ENDPOINTS.REVIEWS}/ev/${evId}/stats`));
@@ -70,15 +83,21 @@ const EVComparison = () => {
   };
 
   const handleEV1Change = (evId) => {
-    const ev = evs.find(e => e.id === parseInt(evId));
-    setSelectedEV1(ev);
+    selectEV(evId, setSelectedEV1);
   };
 
   const handleEV2Change = (evId) => {
-    const ev = evs.find(e => e.id === parseInt(evId));
-    setSelectedEV2(ev);
+    selectEV(evId, setSelectedEV2);
   };
 
+  // Keep a vehicle picked from the URL selectable even before its page is loaded
+  const options = [...evs];
+  [selectedEV1, selectedEV2].forEach(selected => {
+    if (selected && !options.some(ev => ev.id === selected.id)) {
+      options.push(selected);
+    }
+  });
+
   const addToCart = async (evId) => {
     try {
       const userId = 2; // For demo purposes
@@ -177,7 +196,7 @@ const EVComparison = () => {
             onChange={(e) => handleEV1Change(e.target.value)}
           >
             <option value="">Choose a vehicle...</option>
-            {evs.map(ev => (
+            {options.map(ev => (
               <option key={ev.id} value={ev.id}>
                 {ev.brand} {ev.model}
               </option>
@@ -193,13 +212,19 @@ const EVComparison = () => {
             onChange={(e) => handleEV2Change(e.target.value)}
           >
             <option value="">Choose a vehicle...</option>
-            {evs.map(ev => (
+            {options.map(ev => (
               <option key={ev.id} value={ev.id}>
                 {ev.brand} {ev.model}
               </option>
             ))}
           </select>
         </div>
+
+        {nextCursor && (
+          <button className="load-more-button" onClick={() => fetchEVs(nextCursor)}>
+            Load More Vehicles
+          </button>
+        )}
       </div>
 
       {/* Comparison Table */}
@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import axios from 'axios';
-import { createApiUrl, API_ENDPOINTS } from '../config/api';
+import { createApiUrl, API_ENDPOINTS, fetchPage } from '../config/api';
 import './EVDetail.css';
 import LoanCalculator from './LoanCalculator';
 import ReviewSection from './ReviewSection';
@@ -16,11 +16,13 @@ const EVDetail = () => {
   const [showLoanCalculator, setShowLoanCalculator] = useState(false);
   const [showComparisonModal, setShowComparisonModal] = useState(false);
   const [comparisonEV, setComparisonEV] = useState(null);
-  const [allEVs, setAllEVs] = useState([]);
+  const [comparisonEVs, setComparisonEVs] = useState([]);
+  const [comparisonCursor, setComparisonCursor] = useState(null);
 
   useEffect(() => {
     fetchEVDetail();
-    fetchAllEVs();
+    setComparisonEVs([]);
+    setComparisonCursor(null);
   }, [id]);
 
   const fetchEVDetail = async () => {
@@ -34,12 +36,21 @@ const EVDetail = () => {
     }
   };
 
-  const fetchAllEVs = async () => {
+  // Vehicles to compare with are only loaded once the modal is opened, a page at a time
+  const fetchComparisonEVs = async (cursor) => {
     try {
-      const response = await axios.get(createApiUrl(API_ENDPOINTS.EVS));
-      setAllEVs(response.data);
+      const page = await fetchPage(API_ENDPOINTS.EVS, cursor);
+      setComparisonEVs(prev => (cursor ? [...prev, ...page.items] : page.items));
+      setComparisonCursor(page.nextCursor);
     } catch (err) {
-      console.error('Failed to fetch all EVs for comparison');
+      console.error('Failed to fetch EVs for comparison');
+    }
+  };
+
+  const openComparisonModal = () => {
+    setShowComparisonModal(true);
+    if (comparisonEVs.length === 0) {
+      fetchComparisonEVs(null);
     }
   };
 
@@ -160,7 +171,7 @@ const EVDetail = () => {
               </button>
               <button 
                 className="btn btn-tertiary" 
-                onClick={() => setShowComparisonModal(true)}
+                onClick={openComparisonModal}
               >
                 Compare with...
               </button>
@@ -212,17 +223,25 @@ const EVDetail = () => {
               <select 
                 value={comparisonEV?.id || ''} 
                 onChange={(e) => {
-                  const selected = allEVs.find(ev => ev.id === parseInt(e.target.value));
+                  const selected = comparisonEVs.find(ev => ev.id === parseInt(e.target.value));
                   setComparisonEV(selected);
                 }}
               >
                 <option value="">Choose a vehicle...</option>
-                {allEVs.filter(e => e.id !== ev.id).map(ev => (
+                {comparisonEVs.filter(e => e.id !== ev.id).map(ev => (
                   <option key={ev.id} value={ev.id}>
                     {ev.brand} {ev.model}
                   </option>
                 ))}
               </select>
+              {comparisonCursor && (
+                <button 
+                  className="btn btn-secondary modal-load-more"
+                  onClick={() => fetchComparisonEVs(comparisonCursor)}
+                >
+                  Load More Vehicles
+                </button>
+              )}
               {comparisonEV && (
                 <div className="quick-comparison">
                   <div className="comparison-item">
@@ -1,15 +1,16 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import axios from 'axios';
-import { API_BASE_URL, createApiUrl, API_ENDPOINTS } from '../config/api';
+import { createApiUrl, API_ENDPOINTS, fetchPage } from '../config/api';
 import './EVList.css';
 
 const EVList = () => {
   const [evs, setEvs] = useState([]);
-  const [filteredEvs, setFilteredEvs] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [brands, setBrands] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState(null);
-  const [reviewStats, setReviewStats] = useState({});
   const [filters, setFilters] = useState({
     brand: '',
     category: '',
@@ -18,40 +19,51 @@ const EVList = () => {
     minRange: ''
   });
   const [sortBy, setSortBy] = useState('model');
+  // Only the latest request may update the grid, so a slow page for an old
+  // filter never lands on top of the new one
+  const requestId = useRef(0);
   const navigate = useNavigate();
 
   // For demo purposes, using user ID 2 (customer)
   const userId = 2;
 
   useEffect(() => {
-    fetchEVs();
+    fetchBrands();
   }, []);
 
   useEffect(() => {
-    applyFilters();
-  }, [evs, filters, sortBy]);
+    fetchEVs(null);
+  }, [filters]);
 
-  const fetchEVs = async () => {
+  const fetchBrands = async () => {
     try {
-      const response = await axios.get(createApiUrl(API_ENDPOINTS.EVS));
-      setEvs(response.data);
-      
-      // Fetch review stats for each EV
-      const statsPromises = response.data.map(ev => 
-        axios.get(createApiUrl(`${API_ENDPOINTS.REVIEWS}/ev/${ev.id}/stats`))
-          .then(res => ({ [ev.id]: res.data }))
-          .catch(() => ({ [ev.id]: { averageRating: 0, reviewCount: 0 } }))
-      );
-      
-      const statsResults = await Promise.all(statsPromises);
-      const stats = statsResults.reduce((acc, stat) => ({ ...acc, ...stat }), {});
-      setReviewStats(stats);
-      
-      setLoading(false);
+      const response = await axios.get(createApiUrl(`${API_ENDPOINTS.EVS}/brands`));
+      setBrands(response.data);
+    } catch (err) {
+      setBrands([]);
+    }
+  };
+
+  // Loads the first page for the current filters, or the page after cursor
+  const fetchEVs = async (cursor) => {
+    const current = ++requestId.current;
+    const params = Object.fromEntries(Object.entries(filters).filter(([, value]) => value !== ''));
+    const endpoint = Object.keys(params).length > 0 ? `${API_ENDPOINTS.EVS}/filter` : API_ENDPOINTS.EVS;
+    if (cursor) {
+      setLoadingMore(true);
+    }
+    try {
+      const page = await fetchPage(endpoint, cursor, params);
+      if (current !== requestId.current) return;
+      setEvs(prev => (cursor ? [...prev, ...page.items] : page.items));
+      setNextCursor(page.nextCursor);
+      setError(null);
     } catch (err) {
+      if (current !== requestId.current) return;
       setError('Failed to fetch electric vehicles');
-      setLoading(false);
     }
+    setLoading(false);
+    setLoadingMore(false);
   };
 
   const addToCart = async (evId) => {
@@ -66,54 +78,25 @@ const EVList = () => {
     }
   };
 
-  const applyFilters = () => {
-    let filtered = [...evs];
-
-    // Apply brand filter
-    if (filters.brand) {
-      filtered = filtered.filter(ev => ev.brand.toLowerCase().includes(filters.brand.toLowerCase()));
-    }
-
-    // Apply category filter
-    if (filters.category) {
-      filtered = filtered.filter(ev => ev.category === filters.category);
-    }
-
-    // Apply price filters
-    if (filters.minPrice) {
-      filtered = filtered.filter(ev => ev.price >= parseFloat(filters.minPrice));
-    }
-    if (filters.maxPrice) {
-      filtered = filtered.filter(ev => ev.price <= parseFloat(filters.maxPrice));
-    }
-
-    // Apply range filter
-    if (filters.minRange) {
-      filtered = filtered.filter(ev => ev.rangeKm >= parseInt(filters.minRange));
-    }
-
-    // Apply sorting
-    filtered.sort((a, b) => {
-      switch (sortBy) {
-        case 'price':
-          return a.price - b.price;
-        case 'range':
-          return b.rangeKm - a.rangeKm;
-        case 'brand': {
-          const aBrand = a.brand || '';
-          const bBrand = b.brand || '';
-          return aBrand.localeCompare(bBrand);
-        }
-        default: {
-          const aModel = a.model || '';
-          const bModel = b.model || '';
-          return aModel.localeCompare(bModel);
-        }
+  // Filters run on the server; sorting orders the vehicles loaded so far
+  const sortedEvs = [...evs].sort((a, b) => {
+    switch (sortBy) {
+      case 'price':
+        return a.price - b.price;
+      case 'range':
+        return b.rangeKm - a.rangeKm;
+      case 'brand': {
+        const aBrand = a.brand || '';
+        const bBrand = b.brand || '';
+        return aBrand.localeCompare(bBrand);
       }
-    });
-
-    setFilteredEvs(filtered);
-  };
+      default: {
+        const aModel = a.model || '';
+        const bModel = b.model || '';
+        return aModel.localeCompare(bModel);
+      }
+    }
+  });
 
   const handleFilterChange = (e) => {
     const { name, value } = e.target;
@@ -154,13 +137,12 @@ const EVList = () => {
       <div className="filters">
         <h3>Filters</h3>
         <div className="filter-row">
-          <input
-            type="text"
-            name="brand"
-            placeholder="Brand"
-            value={filters.brand}
-            onChange={handleFilterChange}
-          />
+          <select name="brand" value={filters.brand} onChange={handleFilterChange}>
+            <option value="">All Brands</option>
+            {brands.map(brand => (
+              <option key={brand} value={brand}>{brand}</option>
+            ))}
+          </select>
           <select name="category" value={filters.category} onChange={handleFilterChange}>
             <option value="">All Categories</option>
             <option value="COMPACT">Compact</option>
@@ -204,7 +186,7 @@ const EVList = () => {
 
       {/* EV Grid */}
       <div className="ev-grid">
-        {filteredEvs.map(ev => (
+        {sortedEvs.map(ev => (
           <div key={ev.id} className="ev-card">
             <div className="ev-image">
               {ev.imageUrl ? (
@@ -236,7 +218,15 @@ const EVList = () => {
         ))}
       </div>
 
-      {filteredEvs.length === 0 && (
+      {nextCursor && (
+        <div className="load-more">
+          <button onClick={() => fetchEVs(nextCursor)} disabled={loadingMore}>
+            {loadingMore ? 'Loading...' : 'Load More'}
+          </button>
+        </div>
+      )}
+
+      {evs.length === 0 && (
         <div className="no-results">
           <p>No electric vehicles found matching your criteria.</p>
         </div>
@@ -1,3 +1,5 @@
+import axios from 'axios';
+
 // API Configuration for different environments
 const API_CONFIG = {
   development: {
@@ -32,4 +34,17 @@ export const API_ENDPOINTS = {
   CHECKOUT: '/api/checkout'
 };
 
+// Paged list endpoints return { items, size, nextCursor }. Fetches one page
+// of summary rows; pass the previous page's nextCursor to get the next one
+export const CATALOG_PAGE_SIZE = 20;
+
+export const fetchPage = async (endpoint, cursor = null, params = {}) => {
+  const query = { ...params, size: CATALOG_PAGE_SIZE, fields: 'summary' };
+  if (cursor) {
+    query.cursor = cursor;
+  }
+  const response = await axios.get(createApiUrl(endpoint), { params: query });
+  return response.data;
+};
+
 export default config; 
\ No newline at end of file